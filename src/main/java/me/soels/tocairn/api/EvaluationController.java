@@ -146,4 +146,25 @@ public class EvaluationController {
         runner.runEvaluation(evaluation, name, solution, Boolean.TRUE.equals(all));
         return new EvaluationDto(evaluation);
     }
+
+    /**
+     * Resumes the AHCA run of the evaluation with the given {@code evaluationId} from its latest checkpoint.
+     * <p>
+     * This run will be done asynchronously and the returned evaluation shows the state of the evaluation just after
+     * starting this run. The solutions persisted before the checkpoint was taken are linked to the resulting
+     * {@link EvaluationResult}.
+     *
+     * @param evaluationId the id of the evaluation to resume
+     * @param name         the name of the resulting {@link EvaluationResult}
+     * @return the updated evaluation
+     */
+    @PostMapping("/{evaluationId}/resume")
+    public EvaluationDto resumeEvaluation(@PathVariable UUID evaluationId, @RequestParam String name) {
+        if (!runner.hasCheckpoint(evaluationId)) {
+            throw new ResourceNotFoundException("No checkpoint found for evaluation " + evaluationId);
+        }
+        var evaluation = service.prepareRun(evaluationId);
+        runner.resumeEvaluation(evaluation, name);
+        return new EvaluationDto(evaluation);
+    }
 }
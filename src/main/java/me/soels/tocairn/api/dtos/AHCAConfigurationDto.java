@@ -5,6 +5,7 @@ import lombok.Getter;
 import me.soels.tocairn.model.AHCAConfiguration;
 import me.soels.tocairn.solver.metric.MetricType;
 
+import javax.validation.constraints.Min;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -14,21 +15,37 @@ public class AHCAConfigurationDto extends SolverConfigurationDto {
     private final List<Double> weights;
     private final boolean optimisationOnSharedEdges;
     private final boolean normaliseMetrics;
+    private final boolean lazyMergeEvaluation;
+    private final boolean boundedMergeEvaluation;
+    @Min(1)
+    private final Integer mergerChunkSize;
+    @Min(1)
+    private final Integer checkpointInterval;
 
     public AHCAConfigurationDto(AHCAConfiguration dao) {
         super(dao);
         this.weights = dao.getWeights();
         this.optimisationOnSharedEdges = dao.isOptimizationOnSharedEdges();
         this.normaliseMetrics = dao.isNormalizeMetrics();
+        this.lazyMergeEvaluation = dao.isLazyMergeEvaluation();
+        this.boundedMergeEvaluation = dao.isBoundedMergeEvaluation();
+        this.mergerChunkSize = dao.getMergerChunkSize().orElse(null);
+        this.checkpointInterval = dao.getCheckpointInterval().orElse(null);
     }
 
     @JsonCreator
     public AHCAConfigurationDto(List<MetricType> metrics, Integer minClusters, Integer maxClusters,
-                                List<Double> weights, Boolean optimisationOnSharedEdges, Boolean normaliseMetrics) {
-        super(metrics, minClusters, maxClusters);
+                                List<Double> weights, Boolean optimisationOnSharedEdges, Boolean normaliseMetrics,
+                                Boolean lazyMergeEvaluation, Integer parallelism, Integer mergerChunkSize,
+                                Boolean boundedMergeEvaluation, Integer checkpointInterval) {
+        super(metrics, minClusters, maxClusters, parallelism);
         this.weights = weights;
         this.optimisationOnSharedEdges = optimisationOnSharedEdges == null || optimisationOnSharedEdges;
         this.normaliseMetrics = normaliseMetrics == null || normaliseMetrics;
+        this.lazyMergeEvaluation = lazyMergeEvaluation != null && lazyMergeEvaluation;
+        this.mergerChunkSize = mergerChunkSize;
+        this.boundedMergeEvaluation = boundedMergeEvaluation != null && boundedMergeEvaluation;
+        this.checkpointInterval = checkpointInterval;
 
         var underlyingMetrics = metrics.stream()
                 .flatMap(metricType -> metricType.getMetrics().stream())
@@ -49,6 +66,11 @@ public class AHCAConfigurationDto extends SolverConfigurationDto {
         dao.setWeights(weights);
         dao.setOptimizationOnSharedEdges(optimisationOnSharedEdges);
         dao.setNormalizeMetrics(normaliseMetrics);
+        dao.setLazyMergeEvaluation(lazyMergeEvaluation);
+        dao.setMergerChunkSize(mergerChunkSize);
+        dao.setBoundedMergeEvaluation(boundedMergeEvaluation);
+        dao.setCheckpointInterval(checkpointInterval);
+        dao.setParallelism(getParallelism().orElse(null));
         return dao;
     }
 }
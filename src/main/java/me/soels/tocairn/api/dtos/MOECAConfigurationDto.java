@@ -6,6 +6,7 @@ import me.soels.tocairn.model.MOECAConfiguration;
 import me.soels.tocairn.solver.metric.MetricType;
 import me.soels.tocairn.solver.moeca.EncodingType;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.util.HashMap;
@@ -30,6 +31,23 @@ public class MOECAConfigurationDto extends SolverConfigurationDto {
     @Size(min = 1)
     private final Integer populationSize;
 
+    @Min(1)
+    private final Long maxCacheWeight;
+
+    @Min(1)
+    private final Long maxFitnessCacheWeight;
+
+    @Min(1)
+    private final Integer islands;
+
+    @Min(1)
+    private final Integer migrationInterval;
+
+    @Min(1)
+    private final Integer migrationSize;
+
+    private final boolean repairClusterAmount;
+
     private final Map<String, String> additionalProperties;
 
     public MOECAConfigurationDto(MOECAConfiguration dao) {
@@ -39,19 +57,34 @@ public class MOECAConfigurationDto extends SolverConfigurationDto {
         this.maxEvaluations = dao.getMaxEvaluations();
         this.maxTime = dao.getMaxTime().orElse(null);
         this.populationSize = dao.getPopulationSize().orElse(null);
+        this.maxCacheWeight = dao.getMaxCacheWeight().orElse(null);
+        this.maxFitnessCacheWeight = dao.getMaxFitnessCacheWeight().orElse(null);
+        this.repairClusterAmount = dao.isRepairClusterAmount();
+        this.islands = dao.getIslands().orElse(null);
+        this.migrationInterval = dao.getMigrationInterval().orElse(null);
+        this.migrationSize = dao.getMigrationSize().orElse(null);
         this.additionalProperties = dao.getAdditionalProperties();
     }
 
     @JsonCreator
     public MOECAConfigurationDto(List<MetricType> metrics, Integer minClusterAmount, Integer maxClusterAmount,
                                  String algorithm, EncodingType encodingType, int maxEvaluations,
-                                 Long maxTime, Integer populationSize, Map<String, String> additionalProperties) {
-        super(metrics, minClusterAmount, maxClusterAmount);
+                                 Long maxTime, Integer populationSize, Long maxCacheWeight,
+                                 Map<String, String> additionalProperties, Integer parallelism, Integer islands,
+                                 Integer migrationInterval, Integer migrationSize, Long maxFitnessCacheWeight,
+                                 Boolean repairClusterAmount) {
+        super(metrics, minClusterAmount, maxClusterAmount, parallelism);
         this.algorithm = algorithm;
         this.encodingType = encodingType;
         this.maxEvaluations = maxEvaluations;
         this.maxTime = maxTime;
         this.populationSize = populationSize;
+        this.maxCacheWeight = maxCacheWeight;
+        this.maxFitnessCacheWeight = maxFitnessCacheWeight;
+        this.repairClusterAmount = repairClusterAmount != null && repairClusterAmount;
+        this.islands = islands;
+        this.migrationInterval = migrationInterval;
+        this.migrationSize = migrationSize;
         this.additionalProperties = additionalProperties == null ? new HashMap<>() : additionalProperties;
     }
 
@@ -63,10 +96,17 @@ public class MOECAConfigurationDto extends SolverConfigurationDto {
         dao.setMaxEvaluations(maxEvaluations);
         dao.setMaxTime(maxTime);
         dao.setPopulationSize(populationSize);
+        dao.setMaxCacheWeight(maxCacheWeight);
+        dao.setMaxFitnessCacheWeight(maxFitnessCacheWeight);
+        dao.setRepairClusterAmount(repairClusterAmount);
+        dao.setIslands(islands);
+        dao.setMigrationInterval(migrationInterval);
+        dao.setMigrationSize(migrationSize);
         dao.setAdditionalProperties(additionalProperties);
         dao.setMetrics(getMetrics());
         dao.setMinClusterAmount(getMinClusterAmount().orElse(null));
         dao.setMaxClusterAmount(getMaxClusterAmount().orElse(null));
+        dao.setParallelism(getParallelism().orElse(null));
         return dao;
     }
 }
@@ -6,6 +6,7 @@ import lombok.Getter;
 import me.soels.tocairn.model.SolverConfiguration;
 import me.soels.tocairn.solver.metric.MetricType;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.util.List;
@@ -33,16 +34,22 @@ public abstract class SolverConfigurationDto {
     @Size(min = 2)
     private final Integer maxClusterAmount;
 
+    @Min(1)
+    private final Integer parallelism;
+
     protected SolverConfigurationDto(SolverConfiguration dao) {
         this.metrics = dao.getMetrics();
         this.minClusterAmount = dao.getMinClusterAmount().orElse(null);
         this.maxClusterAmount = dao.getMaxClusterAmount().orElse(null);
+        this.parallelism = dao.getParallelism().orElse(null);
     }
 
-    protected SolverConfigurationDto(List<MetricType> metrics, Integer minClusterAmount, Integer maxClusterAmount) {
+    protected SolverConfigurationDto(List<MetricType> metrics, Integer minClusterAmount, Integer maxClusterAmount,
+                                     Integer parallelism) {
         this.metrics = metrics;
         this.minClusterAmount = minClusterAmount;
         this.maxClusterAmount = maxClusterAmount;
+        this.parallelism = parallelism;
     }
 
     public Optional<Integer> getMinClusterAmount() {
@@ -53,5 +60,9 @@ public abstract class SolverConfigurationDto {
         return Optional.ofNullable(maxClusterAmount);
     }
 
+    public Optional<Integer> getParallelism() {
+        return Optional.ofNullable(parallelism);
+    }
+
     public abstract SolverConfiguration toDao();
 }
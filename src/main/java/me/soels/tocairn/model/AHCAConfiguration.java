@@ -4,8 +4,11 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.neo4j.core.schema.Node;
 
+import javax.annotation.Nullable;
+import javax.validation.constraints.Min;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Models the configuration of an evaluation.
@@ -16,6 +19,21 @@ import java.util.List;
  * Note that when {@link #normalizeMetrics} is set to {@code true} that we need to know the max value of every metric
  * for every clustering in the current iteration. Thereofre, we can not perform the memory optimization of not storing
  * all clusterings. This therefore does not work on a large scale where many clusterings need to be assessed per step.
+ * <p>
+ * When {@link #lazyMergeEvaluation} is set to {@code true}, the possible mergers are kept in a priority queue ordered
+ * by their quality change over the steps and only re-evaluated when they are the best known merger. This scales to
+ * large inputs but does not support normalization, the metrics are therefore not normalized in that mode.
+ * <p>
+ * When {@link #boundedMergeEvaluation} is set to {@code true} and the metrics are not normalized, the evaluation of a
+ * merger is abandoned as soon as the metrics evaluated so far together with a lower bound of the remaining metrics
+ * show that it can not improve on the best merger evaluated so far. This requires the weights to not be negative.
+ * <p>
+ * The possible mergers of a step are evaluated in parallel in chunks of {@link #mergerChunkSize} mergers. Idle threads
+ * steal chunks from busy threads. When not set, the chunk size is based on the amount of mergers and the configured
+ * parallelism.
+ * <p>
+ * When {@link #checkpointInterval} is set, the state of the run is stored every that many steps such that the run can
+ * be resumed after a crash or restart.
  */
 @Node
 @Getter
@@ -24,5 +42,22 @@ public class AHCAConfiguration extends SolverConfiguration {
     private List<Double> weights = new LinkedList<>();
     private boolean optimizationOnSharedEdges = true;
     private boolean normalizeMetrics = true;
+    private boolean lazyMergeEvaluation = false;
+    private boolean boundedMergeEvaluation = false;
+    @Nullable
+    @Min(1)
+    private Integer mergerChunkSize;
+
+    @Nullable
+    @Min(1)
+    private Integer checkpointInterval;
+
+    public Optional<Integer> getMergerChunkSize() {
+        return Optional.ofNullable(mergerChunkSize);
+    }
+
+    public Optional<Integer> getCheckpointInterval() {
+        return Optional.ofNullable(checkpointInterval);
+    }
 }
 
@@ -7,6 +7,7 @@ import org.springframework.data.neo4j.core.schema.CompositeProperty;
 import org.springframework.data.neo4j.core.schema.Node;
 
 import javax.annotation.Nullable;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.util.HashMap;
 import java.util.Map;
@@ -17,11 +18,20 @@ import java.util.Optional;
  * <p>
  * The configuration contains all the information necessary to, given the input for the objectives, perform the
  * multi-objective clustering. This therefore primarily configures the problem statement of the evaluation.
+ * <p>
+ * When more than one of {@link #islands} is configured, the population evolves as that many sub-populations on
+ * separate threads. Every {@link #migrationInterval} generations, every island sends {@link #migrationSize} of its
+ * non-dominated solutions to the next island. The non-dominated solutions of all islands form the result.
+ * <p>
+ * When {@link #repairClusterAmount} is set to {@code true}, solutions with an amount of clusters outside of the
+ * configured range are repaired by merging or splitting clusters instead of being denied.
  */
 @Node
 @Getter
 @Setter
 public class MOECAConfiguration extends SolverConfiguration {
+    public static final long DEFAULT_MAX_FITNESS_CACHE_WEIGHT = 10_000_000;
+
     @NotNull
     private String algorithm;
 
@@ -37,6 +47,43 @@ public class MOECAConfiguration extends SolverConfiguration {
     @Nullable
     private Integer populationSize;
 
+    /**
+     * The maximum weight of every metric's cache, i.e. the summed amount of classes of the microservices cached.
+     */
+    @Nullable
+    private Long maxCacheWeight;
+
+    /**
+     * The maximum weight of the cache of objectives of evaluated clusterings, i.e. the summed amount of classes of the
+     * clusterings cached.
+     */
+    @Nullable
+    @Min(1)
+    private Long maxFitnessCacheWeight;
+
+    /**
+     * The amount of sub-populations to evolve in parallel, each of the configured population size.
+     */
+    @Nullable
+    @Min(1)
+    private Integer islands;
+
+    /**
+     * The amount of generations between migrations of solutions between the islands.
+     */
+    @Nullable
+    @Min(1)
+    private Integer migrationInterval;
+
+    /**
+     * The amount of solutions every island sends to the next island on migration.
+     */
+    @Nullable
+    @Min(1)
+    private Integer migrationSize;
+
+    private boolean repairClusterAmount = false;
+
     @CompositeProperty(prefix = "additionalProperties")
     private Map<String, String> additionalProperties = new HashMap<>();
 
@@ -47,4 +94,24 @@ public class MOECAConfiguration extends SolverConfiguration {
     public Optional<Integer> getPopulationSize() {
         return Optional.ofNullable(populationSize);
     }
+
+    public Optional<Long> getMaxCacheWeight() {
+        return Optional.ofNullable(maxCacheWeight);
+    }
+
+    public Optional<Long> getMaxFitnessCacheWeight() {
+        return Optional.ofNullable(maxFitnessCacheWeight);
+    }
+
+    public Optional<Integer> getIslands() {
+        return Optional.ofNullable(islands);
+    }
+
+    public Optional<Integer> getMigrationInterval() {
+        return Optional.ofNullable(migrationInterval);
+    }
+
+    public Optional<Integer> getMigrationSize() {
+        return Optional.ofNullable(migrationSize);
+    }
 }
@@ -9,6 +9,7 @@ import org.springframework.data.neo4j.core.schema.Id;
 import org.springframework.data.neo4j.core.schema.Node;
 
 import javax.annotation.Nullable;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.Size;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,6 +35,13 @@ public abstract class SolverConfiguration {
     private Integer maxClusterAmount;
     private List<MetricType> metrics = new ArrayList<>();
 
+    /**
+     * The amount of threads the solver uses for its parallel work, the amount of available processors by default.
+     */
+    @Nullable
+    @Min(1)
+    private Integer parallelism;
+
     public Optional<Integer> getMinClusterAmount() {
         return Optional.ofNullable(minClusterAmount);
     }
@@ -41,4 +49,8 @@ public abstract class SolverConfiguration {
     public Optional<Integer> getMaxClusterAmount() {
         return Optional.ofNullable(maxClusterAmount);
     }
+
+    public Optional<Integer> getParallelism() {
+        return Optional.ofNullable(parallelism);
+    }
 }
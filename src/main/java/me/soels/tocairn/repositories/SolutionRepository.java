@@ -37,4 +37,21 @@ public interface SolutionRepository extends Neo4jRepository<Solution, UUID> {
             "WHERE b.id IN $1 " +
             "CREATE (a)-[r:HasMicroservice]->(b)")
     void createRelationships(UUID solutionId, List<UUID> microserviceIds);
+
+    /**
+     * Deletes the solutions of the given evaluation that are not linked to a result, together with their
+     * microservices.
+     * <p>
+     * Such solutions remain when a run stops before its result is persisted.
+     *
+     * @param evaluationId    the id of the evaluation to delete the unlinked solutions of
+     * @param keptSolutionIds the ids of the unlinked solutions to keep
+     */
+    @Query("MATCH (s:Solution)-[:HasMicroservice]->(:Microservice)-[:HasClasses]->" +
+            "(:AbstractClass { evaluationId: $0 }) " +
+            "WHERE NOT (:EvaluationResult)-[:HasSolution]->(s) AND NOT s.id IN $1 " +
+            "WITH DISTINCT s " +
+            "MATCH (s)-[:HasMicroservice]->(m:Microservice) " +
+            "DETACH DELETE m, s")
+    void deleteUnlinkedSolutions(UUID evaluationId, List<UUID> keptSolutionIds);
 }
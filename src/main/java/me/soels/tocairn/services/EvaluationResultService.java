@@ -78,16 +78,25 @@ public class EvaluationResultService {
                 .collect(Collectors.toList());
         result.setSolutions(Collections.emptyList());
 
-        LOGGER.info(" - Persisting result.");
-        resultRepository.save(result);
-
-        LOGGER.info(" - Creating links from result to solutions");
-        resultRepository.createSolutionRelationship(result.getId(), solutions.stream()
+        persistResult(result, solutions.stream()
                 .map(Solution::getId)
-                .collect(Collectors.toList())
-        );
+                .collect(Collectors.toList()));
 
         result.setSolutions(solutions);
+    }
+
+    /**
+     * Persists the given result without solutions and links it to the already persisted solutions with the given ids.
+     *
+     * @param result      the result to persist, without solutions
+     * @param solutionIds the ids of the persisted solutions of the result
+     */
+    public void persistResult(EvaluationResult result, List<UUID> solutionIds) {
+        LOGGER.info(" - Persisting result.");
+        resultRepository.save(result);
+
+        LOGGER.info(" - Creating links from result to {} solutions", solutionIds.size());
+        resultRepository.createSolutionRelationship(result.getId(), solutionIds);
         LOGGER.info("Done persisting clustering result(s)");
     }
 
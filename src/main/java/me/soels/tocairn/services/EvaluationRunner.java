@@ -1,7 +1,10 @@
 package me.soels.tocairn.services;
 
 import me.soels.tocairn.model.*;
+import me.soels.tocairn.solver.Solver;
 import me.soels.tocairn.solver.SolverFactory;
+import me.soels.tocairn.solver.ahca.AHCACheckpointStore;
+import me.soels.tocairn.solver.ahca.AHCASolver;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,29 +14,78 @@ import org.springframework.stereotype.Service;
 import javax.annotation.Nullable;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 /**
  * Service responsible for performing a run for a configured evaluation and storing the result.
+ * <p>
+ * The solutions are persisted as soon as the solver produces them. This is done on a dedicated thread such that the
+ * solver does not wait for the database. When more than {@link #PERSISTENCE_QUEUE_SIZE} solutions are waiting to be
+ * persisted, the solver persists the solution itself to limit the amount of solutions kept in memory. Only when the
+ * run has finished, the result is persisted and linked to these solutions.
+ * <p>
+ * Runs of which checkpoints have been stored can be resumed through {@link #resumeEvaluation(Evaluation, String)}. The
+ * checkpoint is removed once the run has finished or when a new run is started.
+ * <p>
+ * Solutions persisted by a run that did not finish are not linked to a result. When resuming, those persisted after
+ * the checkpoint are deleted as they are produced again. When starting a new run, all of them are deleted.
  */
 @Service
 public class EvaluationRunner {
     private static final Logger LOGGER = LoggerFactory.getLogger(EvaluationRunner.class);
+    private static final int PERSISTENCE_QUEUE_SIZE = 16;
     private final EvaluationService evaluationService;
     private final EvaluationResultService resultService;
+    private final SolutionService solutionService;
     private final SolverFactory solverFactory;
+    private final AHCACheckpointStore checkpointStore;
     private final AtomicBoolean runnerRunning = new AtomicBoolean(false);
 
     public EvaluationRunner(EvaluationService evaluationService,
                             EvaluationResultService resultService,
-                            SolverFactory solverFactory) {
+                            SolutionService solutionService,
+                            SolverFactory solverFactory,
+                            AHCACheckpointStore checkpointStore) {
         this.evaluationService = evaluationService;
         this.resultService = resultService;
+        this.solutionService = solutionService;
         this.solverFactory = solverFactory;
+        this.checkpointStore = checkpointStore;
     }
 
     @Async
     public void runEvaluation(Evaluation evaluation, String name, @Nullable Solution solution, boolean all) {
+        runLocked(evaluation, () -> run(evaluation, name, solution, all));
+    }
+
+    /**
+     * Resumes the run of the given evaluation from its latest checkpoint.
+     *
+     * @param evaluation the evaluation to resume the run of
+     * @param name       the name of the resulting {@link EvaluationResult}
+     */
+    @Async
+    public void resumeEvaluation(Evaluation evaluation, String name) {
+        runLocked(evaluation, () -> resume(evaluation, name));
+    }
+
+    /**
+     * Returns whether a checkpoint has been stored for the run of the given evaluation.
+     *
+     * @param evaluationId the evaluation to check
+     * @return whether the run of the evaluation can be resumed
+     */
+    public boolean hasCheckpoint(UUID evaluationId) {
+        return checkpointStore.exists(evaluationId);
+    }
+
+    private void runLocked(Evaluation evaluation, Runnable run) {
         try {
             // Lock.
             if (!runnerRunning.compareAndSet(false, true)) {
@@ -41,7 +93,7 @@ public class EvaluationRunner {
                         "all the needed resources, we don't allow to run multiple in parallel.");
             }
 
-            run(evaluation, name, solution, all);
+            run.run();
         } catch (Exception e) {
             LOGGER.error("The evaluation with ID " + evaluation.getId() + " failed.", e);
             evaluationService.updateStatus(evaluation.getId(), EvaluationStatus.ERRORED);
@@ -52,29 +104,78 @@ public class EvaluationRunner {
     }
 
     private void run(Evaluation evaluation, String name, @Nullable Solution solution, boolean all) {
+        // Discard the state of a previous run that did not finish as it can no longer be resumed
+        checkpointStore.delete(evaluation.getId());
+        solutionService.deleteUnlinkedSolutions(evaluation.getId(), Collections.emptyList());
+
         var input = new EvaluationInputBuilder(evaluation.getInputs()).build();
         var solver = solverFactory.createSolver(evaluation, input);
         solver.initialize(solution, all);
+        execute(evaluation, name, solver, Collections.emptyList());
+    }
 
+    private void resume(Evaluation evaluation, String name) {
+        var checkpoint = checkpointStore.load(evaluation.getId())
+                .orElseThrow(() -> new IllegalArgumentException("No checkpoint found for evaluation " +
+                        evaluation.getId()));
+        var input = new EvaluationInputBuilder(evaluation.getInputs()).build();
+        var solver = solverFactory.createSolver(evaluation, input);
+        if (!(solver instanceof AHCASolver)) {
+            throw new IllegalArgumentException("Only AHCA runs can be resumed from a checkpoint");
+        }
+        // The solutions persisted after the checkpoint was taken are produced again
+        solutionService.deleteUnlinkedSolutions(evaluation.getId(), checkpoint.getSolutionIds());
+        ((AHCASolver) solver).resume(checkpoint);
+        execute(evaluation, name, solver, checkpoint.getSolutionIds());
+    }
+
+    private void execute(Evaluation evaluation, String name, Solver solver, List<UUID> persistedSolutionIds) {
         var start = ZonedDateTime.now();
         LOGGER.info("Running evaluation '{}' ({})", evaluation.getName(), evaluation.getId());
 
-        var result = solver.run();
-        persistResult(evaluation, name, start, result);
+        // Persist the solutions as they are produced instead of keeping them in memory until the run has finished
+        var pendingSolutionIds = new ArrayList<CompletableFuture<UUID>>();
+        EvaluationResult result;
+        List<UUID> solutionIds;
+        var persister = createPersister(evaluation);
+        try {
+            result = solver.run(solution -> {
+                var solutionId = CompletableFuture.supplyAsync(() ->
+                        solutionService.persistSolution(solution).getId(), persister);
+                pendingSolutionIds.add(solutionId);
+                return solutionId;
+            });
+            solutionIds = new ArrayList<>(persistedSolutionIds);
+            solutionIds.addAll(pendingSolutionIds.stream()
+                    .map(CompletableFuture::join)
+                    .collect(Collectors.toList()));
+        } finally {
+            persister.shutdown();
+        }
+        persistResult(evaluation, name, start, result, solutionIds);
+        checkpointStore.delete(evaluation.getId());
 
         var duration = DurationFormatUtils.formatDurationHMS(ChronoUnit.MILLIS.between(start, result.getFinishDate()));
         LOGGER.info("Evaluation run complete. Took {} (H:m:s.millis)", duration);
         evaluationService.updateStatus(evaluation.getId(), EvaluationStatus.DONE);
-        LOGGER.info("Result id: {}, Solutions: {}, Clusters: {}", result.getId(), result.getSolutions().size(),
-                result.getSolutions().stream().mapToInt(sol -> sol.getMicroservices().size()).sum());
+        LOGGER.info("Result id: {}, Solutions: {}", result.getId(), solutionIds.size());
+    }
+
+    private ExecutorService createPersister(Evaluation evaluation) {
+        // When the queue is full, the solver persists the solution itself until the persister has caught up
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(PERSISTENCE_QUEUE_SIZE),
+                runnable -> new Thread(runnable, "solution-persister-" + evaluation.getId()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
     }
 
-    private void persistResult(Evaluation evaluation, String name, ZonedDateTime start, EvaluationResult result) {
+    private void persistResult(Evaluation evaluation, String name, ZonedDateTime start, EvaluationResult result,
+                               List<UUID> solutionIds) {
         result.setStartDate(start);
         result.setFinishDate(ZonedDateTime.now());
         result.setName(name);
 
-        resultService.persistResult(result);
+        resultService.persistResult(result, solutionIds);
         evaluationService.createResultRelationship(evaluation.getId(), result.getId());
     }
 }
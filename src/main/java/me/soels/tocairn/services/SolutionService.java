@@ -84,7 +84,7 @@ public class SolutionService {
         }
 
         LOGGER.info(" - Persisting {} microservices.", microserviceClasses.size());
-        microserviceClasses.keySet().parallelStream().forEach(microserviceRepository::save);
+        microserviceRepository.saveAll(microserviceClasses.keySet());
 
         LOGGER.info(" - Temporarily storing solution's microservices and resetting them");
         // Store the instance of this solution and the microservices it should reference.
@@ -133,6 +133,18 @@ public class SolutionService {
         solutionRepository.delete(solution);
     }
 
+    /**
+     * Deletes the solutions of the given evaluation that have been persisted by a run that did not finish and are
+     * therefore not linked to a result.
+     *
+     * @param evaluationId    the evaluation to delete the unlinked solutions of
+     * @param keptSolutionIds the ids of the unlinked solutions to keep, e.g. those of a checkpoint to resume from
+     */
+    public void deleteUnlinkedSolutions(UUID evaluationId, List<UUID> keptSolutionIds) {
+        LOGGER.info("Deleting solutions of evaluation {} that are not linked to a result", evaluationId);
+        solutionRepository.deleteUnlinkedSolutions(evaluationId, keptSolutionIds);
+    }
+
     /**
      * Creates a custom solution from user input.
      * <p>
@@ -0,0 +1,653 @@
+package me.soels.tocairn.solver;
+
+import me.soels.tocairn.model.*;
+
+import java.util.*;
+
+import static me.soels.tocairn.model.DataRelationshipType.WRITE;
+
+/**
+ * Immutable, index-based representation of the {@link OtherClass} dependency graph to calculate metrics on.
+ * <p>
+ * Every {@link OtherClass} is given a dense index from {@code 0} to {@code n - 1} based on the lexicographic order of
+ * their identifiers. This order matches that of {@link EvaluationInput#getOtherClasses()} such that the index of a
+ * class equals its gene index in the evolutionary algorithms. Every {@link DataClass} referenced through a
+ * {@link DataRelationship} is given a dense index as well. The features of the classes are interned to dense indices
+ * based on their lexicographic order such that comparing feature indices equals comparing the features themselves.
+ * <p>
+ * The {@link DependenceRelationship} between other classes and the {@link DataRelationship} to data classes are stored
+ * in compressed sparse row (CSR) format. The relationships of class {@code i} are stored at the positions
+ * {@code offsets[i]} (inclusive) up to {@code offsets[i + 1]} (exclusive) of the primitive arrays holding the
+ * relationship's target and its properties. The order of relationships of a class is retained such that 'first
+ * relationship' semantics of the object model are kept.
+ * <p>
+ * Dependencies to classes that are not part of this graph are not stored as an edge. Their static frequency is
+ * accumulated per class in {@link #getExternalStaticFrequency(int)} instead.
+ * <p>
+ * Additionally, the dependencies are indexed per callee such that the incoming dependencies of a class, or only those
+ * that were dynamically used, can be iterated and the data relationships are indexed per data class such that the
+ * classes sharing a data class can be iterated without visiting the classes that do not.
+ */
+public final class ClassGraph {
+    private final List<OtherClass> classes;
+    private final Map<UUID, Integer> indexById;
+    private final Map<String, Integer> indexByIdentifier;
+    private final int dataClassCount;
+    private final String[] features;
+
+    // Class properties
+    private final long[] sizes;
+    private final int[] methodCounts;
+    private final boolean[] executedAPIClasses;
+    private final long[] externalStaticFrequencies;
+
+    // Features of every class in CSR format
+    private final int[] featureOffsets;
+    private final int[] classFeatures;
+
+    // Dependencies between other classes in CSR format
+    private final int[] dependencyOffsets;
+    private final int[] dependencyTargets;
+    private final int[] staticFrequencies;
+    private final long[] dynamicFrequencies;
+    private final int[] connections;
+    private final DependenceRelationship[] dependencies;
+
+    // Incoming dependencies of every class in CSR format, referring to the positions of the dependencies
+    private final int[] dependencySources;
+    private final int[] incomingOffsets;
+    private final int[] incomingDependencies;
+    private final int[] dynamicIncomingOffsets;
+    private final int[] dynamicIncomingDependencies;
+
+    // Data relationships to data classes in CSR format
+    private final int[] dataOffsets;
+    private final int[] dataTargets;
+    private final boolean[] dataWrites;
+    private final long[] dataFrequencies;
+
+    // Inverted index of the first data relationship of every class to a data class in CSR format
+    private final int[] accessorOffsets;
+    private final int[] accessors;
+    private final boolean[] accessorWrites;
+    private final long[] accessorFrequencies;
+
+    private final long totalStaticFrequency;
+
+    /**
+     * Constructs the graph for the classes to cluster in the given input.
+     *
+     * @param input the input containing the classes to cluster
+     */
+    public ClassGraph(EvaluationInput input) {
+        this(input.getOtherClasses());
+    }
+
+    /**
+     * Constructs the graph for the given classes to cluster.
+     *
+     * @param otherClasses the classes to cluster
+     */
+    public ClassGraph(Collection<OtherClass> otherClasses) {
+        var sorted = new ArrayList<>(otherClasses);
+        sorted.sort(Comparator.comparing(AbstractClass::getIdentifier));
+        this.classes = Collections.unmodifiableList(sorted);
+
+        var n = classes.size();
+        this.indexById = new HashMap<>(n * 2);
+        this.indexByIdentifier = new HashMap<>(n * 2);
+        this.sizes = new long[n];
+        this.methodCounts = new int[n];
+        this.executedAPIClasses = new boolean[n];
+        this.externalStaticFrequencies = new long[n];
+        for (var i = 0; i < n; i++) {
+            var clazz = classes.get(i);
+            indexById.put(clazz.getId(), i);
+            indexByIdentifier.putIfAbsent(clazz.getIdentifier(), i);
+            sizes[i] = clazz.getSize() == null ? -1 : clazz.getSize();
+            methodCounts[i] = clazz.getMethodCount();
+            executedAPIClasses[i] = clazz.isExecutedAPIClass();
+        }
+
+        // Features implemented by the classes to cluster
+        this.features = classes.stream()
+                .flatMap(clazz -> clazz.getFeatures().stream())
+                .distinct()
+                .sorted()
+                .toArray(String[]::new);
+        this.featureOffsets = new int[n + 1];
+        for (var i = 0; i < n; i++) {
+            featureOffsets[i + 1] = featureOffsets[i] + classes.get(i).getFeatures().size();
+        }
+        this.classFeatures = new int[featureOffsets[n]];
+        for (var i = 0; i < n; i++) {
+            var position = featureOffsets[i];
+            for (var feature : classes.get(i).getFeatures()) {
+                classFeatures[position++] = Arrays.binarySearch(features, feature);
+            }
+        }
+
+        // Dependencies between the classes to cluster
+        this.dependencyOffsets = new int[n + 1];
+        var nbDependencies = 0;
+        for (var i = 0; i < n; i++) {
+            dependencyOffsets[i] = nbDependencies;
+            for (var dependency : classes.get(i).getDependenceRelationships()) {
+                if (indexById.containsKey(dependency.getCallee().getId())) {
+                    nbDependencies++;
+                }
+            }
+        }
+        dependencyOffsets[n] = nbDependencies;
+        this.dependencyTargets = new int[nbDependencies];
+        this.staticFrequencies = new int[nbDependencies];
+        this.dynamicFrequencies = new long[nbDependencies];
+        this.connections = new int[nbDependencies];
+        this.dependencies = new DependenceRelationship[nbDependencies];
+        var total = 0L;
+        var edge = 0;
+        for (var i = 0; i < n; i++) {
+            for (var dependency : classes.get(i).getDependenceRelationships()) {
+                total += dependency.getStaticFrequency();
+                var target = indexById.get(dependency.getCallee().getId());
+                if (target == null) {
+                    externalStaticFrequencies[i] += dependency.getStaticFrequency();
+                    continue;
+                }
+                dependencyTargets[edge] = target;
+                staticFrequencies[edge] = dependency.getStaticFrequency();
+                dynamicFrequencies[edge] = dependency.getDynamicFrequency().orElse(0L);
+                connections[edge] = dependency.getConnections();
+                dependencies[edge] = dependency;
+                edge++;
+            }
+        }
+        this.totalStaticFrequency = total;
+
+        // Incoming dependencies, ordered by the caller's index
+        this.dependencySources = new int[nbDependencies];
+        this.incomingOffsets = new int[n + 1];
+        for (var i = 0; i < n; i++) {
+            for (var dep = dependencyOffsets[i]; dep < dependencyOffsets[i + 1]; dep++) {
+                dependencySources[dep] = i;
+                incomingOffsets[dependencyTargets[dep] + 1]++;
+            }
+        }
+        for (var i = 0; i < n; i++) {
+            incomingOffsets[i + 1] += incomingOffsets[i];
+        }
+        this.incomingDependencies = new int[nbDependencies];
+        var incomingPositions = Arrays.copyOf(incomingOffsets, n);
+        for (var dep = 0; dep < nbDependencies; dep++) {
+            incomingDependencies[incomingPositions[dependencyTargets[dep]]++] = dep;
+        }
+
+        // Incoming dependencies that were dynamically used, ordered by the caller's index
+        this.dynamicIncomingOffsets = new int[n + 1];
+        for (var i = 0; i < n; i++) {
+            dynamicIncomingOffsets[i + 1] = dynamicIncomingOffsets[i];
+            for (var incoming = incomingOffsets[i]; incoming < incomingOffsets[i + 1]; incoming++) {
+                if (dynamicFrequencies[incomingDependencies[incoming]] > 0) {
+                    dynamicIncomingOffsets[i + 1]++;
+                }
+            }
+        }
+        this.dynamicIncomingDependencies = new int[dynamicIncomingOffsets[n]];
+        var dynamicPosition = 0;
+        for (var incoming = 0; incoming < nbDependencies; incoming++) {
+            if (dynamicFrequencies[incomingDependencies[incoming]] > 0) {
+                dynamicIncomingDependencies[dynamicPosition++] = incomingDependencies[incoming];
+            }
+        }
+
+        // Data relationships to the data classes
+        var dataIndex = new HashMap<UUID, Integer>();
+        this.dataOffsets = new int[n + 1];
+        var nbDataRelationships = 0;
+        for (var i = 0; i < n; i++) {
+            dataOffsets[i] = nbDataRelationships;
+            nbDataRelationships += classes.get(i).getDataRelationships().size();
+        }
+        dataOffsets[n] = nbDataRelationships;
+        this.dataTargets = new int[nbDataRelationships];
+        this.dataWrites = new boolean[nbDataRelationships];
+        this.dataFrequencies = new long[nbDataRelationships];
+        var dataEdge = 0;
+        for (var i = 0; i < n; i++) {
+            for (var dataRelationship : classes.get(i).getDataRelationships()) {
+                dataTargets[dataEdge] = dataIndex.computeIfAbsent(dataRelationship.getCallee().getId(),
+                        id -> dataIndex.size());
+                dataWrites[dataEdge] = dataRelationship.getType() == WRITE;
+                dataFrequencies[dataEdge] = dataRelationship.getStaticFrequency() +
+                        dataRelationship.getDynamicFrequency().orElse(0L);
+                dataEdge++;
+            }
+        }
+        this.dataClassCount = dataIndex.size();
+
+        // Inverted index from data classes to the classes accessing them, ordered by class index
+        this.accessorOffsets = new int[dataClassCount + 1];
+        var firstDataRelationship = new boolean[nbDataRelationships];
+        for (var i = 0; i < n; i++) {
+            for (var dataRel = dataOffsets[i]; dataRel < dataOffsets[i + 1]; dataRel++) {
+                if (findDataRelationship(i, dataTargets[dataRel]) == dataRel) {
+                    firstDataRelationship[dataRel] = true;
+                    accessorOffsets[dataTargets[dataRel] + 1]++;
+                }
+            }
+        }
+        for (var d = 0; d < dataClassCount; d++) {
+            accessorOffsets[d + 1] += accessorOffsets[d];
+        }
+        this.accessors = new int[accessorOffsets[dataClassCount]];
+        this.accessorWrites = new boolean[accessors.length];
+        this.accessorFrequencies = new long[accessors.length];
+        var positions = Arrays.copyOf(accessorOffsets, dataClassCount);
+        for (var i = 0; i < n; i++) {
+            for (var dataRel = dataOffsets[i]; dataRel < dataOffsets[i + 1]; dataRel++) {
+                if (firstDataRelationship[dataRel]) {
+                    var position = positions[dataTargets[dataRel]]++;
+                    accessors[position] = i;
+                    accessorWrites[position] = dataWrites[dataRel];
+                    accessorFrequencies[position] = dataFrequencies[dataRel];
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of classes in this graph.
+     *
+     * @return the amount of classes
+     */
+    public int size() {
+        return classes.size();
+    }
+
+    /**
+     * Returns the amount of unique data classes referenced by the classes in this graph.
+     *
+     * @return the amount of data classes
+     */
+    public int getDataClassCount() {
+        return dataClassCount;
+    }
+
+    /**
+     * Returns the amount of unique features implemented by the classes in this graph.
+     *
+     * @return the amount of features
+     */
+    public int getFeatureCount() {
+        return features.length;
+    }
+
+    /**
+     * Returns the feature with the given index.
+     *
+     * @param feature the index of the feature
+     * @return the feature
+     */
+    public String getFeature(int feature) {
+        return features[feature];
+    }
+
+    /**
+     * Returns the start (inclusive) of the features of the given class.
+     *
+     * @param index the index of the class
+     * @return the position of the first feature of the class
+     */
+    public int featureStart(int index) {
+        return featureOffsets[index];
+    }
+
+    /**
+     * Returns the end (exclusive) of the features of the given class.
+     *
+     * @param index the index of the class
+     * @return the position after the last feature of the class
+     */
+    public int featureEnd(int index) {
+        return featureOffsets[index + 1];
+    }
+
+    /**
+     * Returns the index of the feature at the given position.
+     *
+     * @param position the position of the feature of a class
+     * @return the index of the feature
+     */
+    public int getClassFeature(int position) {
+        return classFeatures[position];
+    }
+
+    /**
+     * Returns the class with the given index.
+     *
+     * @param index the index of the class
+     * @return the class
+     */
+    public OtherClass getOtherClass(int index) {
+        return classes.get(index);
+    }
+
+    /**
+     * Returns the classes in this graph ordered by their index.
+     *
+     * @return the unmodifiable list of classes
+     */
+    public List<OtherClass> getOtherClasses() {
+        return classes;
+    }
+
+    /**
+     * Returns the index of the given class.
+     *
+     * @param clazz the class to retrieve the index for
+     * @return the index of the class
+     * @throws IllegalArgumentException when the class is not part of this graph
+     */
+    public int indexOf(OtherClass clazz) {
+        var index = indexById.get(clazz.getId());
+        if (index == null) {
+            throw new IllegalArgumentException("Class " + clazz.getIdentifier() + " is not part of the class graph");
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of the class with the given identifier (FQN).
+     *
+     * @param identifier the identifier of the class
+     * @return the index of the class or {@code -1} if it is not part of this graph
+     */
+    public int indexOf(String identifier) {
+        return indexByIdentifier.getOrDefault(identifier, -1);
+    }
+
+    /**
+     * Returns the measured size of the class or {@code -1} when it is unknown.
+     *
+     * @param index the index of the class
+     * @return the size of the class
+     */
+    public long getSize(int index) {
+        return sizes[index];
+    }
+
+    public int getMethodCount(int index) {
+        return methodCounts[index];
+    }
+
+    public boolean isExecutedAPIClass(int index) {
+        return executedAPIClasses[index];
+    }
+
+    /**
+     * Returns the summed static frequency of dependencies from the given class to classes not part of this graph.
+     *
+     * @param index the index of the class
+     * @return the static frequency of dependencies leaving the graph
+     */
+    public long getExternalStaticFrequency(int index) {
+        return externalStaticFrequencies[index];
+    }
+
+    /**
+     * Returns the start (inclusive) of the dependencies of the given class.
+     *
+     * @param index the index of the class
+     * @return the position of the first dependency of the class
+     */
+    public int dependencyStart(int index) {
+        return dependencyOffsets[index];
+    }
+
+    /**
+     * Returns the end (exclusive) of the dependencies of the given class.
+     *
+     * @param index the index of the class
+     * @return the position after the last dependency of the class
+     */
+    public int dependencyEnd(int index) {
+        return dependencyOffsets[index + 1];
+    }
+
+    public int getDependencyCount() {
+        return dependencyTargets.length;
+    }
+
+    public int getSource(int dependency) {
+        return dependencySources[dependency];
+    }
+
+    public int getTarget(int dependency) {
+        return dependencyTargets[dependency];
+    }
+
+    /**
+     * Returns the start (inclusive) of the incoming dependencies of the given class.
+     *
+     * @param index the index of the class
+     * @return the position of the first incoming dependency of the class
+     */
+    public int incomingStart(int index) {
+        return incomingOffsets[index];
+    }
+
+    /**
+     * Returns the end (exclusive) of the incoming dependencies of the given class.
+     *
+     * @param index the index of the class
+     * @return the position after the last incoming dependency of the class
+     */
+    public int incomingEnd(int index) {
+        return incomingOffsets[index + 1];
+    }
+
+    /**
+     * Returns the position of the incoming dependency at the given position.
+     *
+     * @param incoming the position of the incoming dependency
+     * @return the position of the dependency to use with the other dependency accessors
+     */
+    public int getIncomingDependency(int incoming) {
+        return incomingDependencies[incoming];
+    }
+
+    /**
+     * Returns the start (inclusive) of the incoming dependencies of the given class with a dynamic frequency above
+     * {@code 0}.
+     *
+     * @param index the index of the class
+     * @return the position of the first dynamically used incoming dependency of the class
+     */
+    public int dynamicIncomingStart(int index) {
+        return dynamicIncomingOffsets[index];
+    }
+
+    /**
+     * Returns the end (exclusive) of the incoming dependencies of the given class with a dynamic frequency above
+     * {@code 0}.
+     *
+     * @param index the index of the class
+     * @return the position after the last dynamically used incoming dependency of the class
+     */
+    public int dynamicIncomingEnd(int index) {
+        return dynamicIncomingOffsets[index + 1];
+    }
+
+    /**
+     * Returns the position of the dynamically used incoming dependency at the given position.
+     *
+     * @param incoming the position of the dynamically used incoming dependency
+     * @return the position of the dependency to use with the other dependency accessors
+     */
+    public int getDynamicIncomingDependency(int incoming) {
+        return dynamicIncomingDependencies[incoming];
+    }
+
+    public int getStaticFrequency(int dependency) {
+        return staticFrequencies[dependency];
+    }
+
+    /**
+     * Returns the dynamic frequency of the dependency or {@code 0} when it was not measured.
+     *
+     * @param dependency the position of the dependency
+     * @return the dynamic frequency of the dependency
+     */
+    public long getDynamicFrequency(int dependency) {
+        return dynamicFrequencies[dependency];
+    }
+
+    public int getConnections(int dependency) {
+        return connections[dependency];
+    }
+
+    /**
+     * Returns the relationship from the object model this dependency was constructed from.
+     *
+     * @param dependency the position of the dependency
+     * @return the relationship
+     */
+    public DependenceRelationship getDependency(int dependency) {
+        return dependencies[dependency];
+    }
+
+    /**
+     * Returns the position of the first dependency from class {@code i} to class {@code j}.
+     *
+     * @param i the caller class
+     * @param j the callee class
+     * @return the position of the dependency or {@code -1} if class {@code i} does not depend on class {@code j}
+     */
+    public int findDependency(int i, int j) {
+        for (var dependency = dependencyOffsets[i]; dependency < dependencyOffsets[i + 1]; dependency++) {
+            if (dependencyTargets[dependency] == j) {
+                return dependency;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the start (inclusive) of the data relationships of the given class.
+     *
+     * @param index the index of the class
+     * @return the position of the first data relationship of the class
+     */
+    public int dataStart(int index) {
+        return dataOffsets[index];
+    }
+
+    /**
+     * Returns the end (exclusive) of the data relationships of the given class.
+     *
+     * @param index the index of the class
+     * @return the position after the last data relationship of the class
+     */
+    public int dataEnd(int index) {
+        return dataOffsets[index + 1];
+    }
+
+    public int getDataTarget(int dataRelationship) {
+        return dataTargets[dataRelationship];
+    }
+
+    /**
+     * Returns whether the data relationship is of type {@link DataRelationshipType#WRITE}.
+     *
+     * @param dataRelationship the position of the data relationship
+     * @return whether the data relationship writes to the data class
+     */
+    public boolean isDataWrite(int dataRelationship) {
+        return dataWrites[dataRelationship];
+    }
+
+    /**
+     * Returns the static frequency plus the dynamic frequency (when measured) of the data relationship.
+     *
+     * @param dataRelationship the position of the data relationship
+     * @return the total frequency of the data relationship
+     */
+    public long getDataFrequency(int dataRelationship) {
+        return dataFrequencies[dataRelationship];
+    }
+
+    /**
+     * Returns the position of the first data relationship from class {@code i} to data class {@code d}.
+     *
+     * @param i the index of the class
+     * @param d the index of the data class
+     * @return the position of the data relationship or {@code -1} if class {@code i} does not access data class
+     * {@code d}
+     */
+    public int findDataRelationship(int i, int d) {
+        for (var dataRel = dataOffsets[i]; dataRel < dataOffsets[i + 1]; dataRel++) {
+            if (dataTargets[dataRel] == d) {
+                return dataRel;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the start (inclusive) of the accessors of the given data class.
+     * <p>
+     * The accessors of a data class are the classes that have a data relationship to it, ordered by their index. Only
+     * the first data relationship of a class to the data class is included.
+     *
+     * @param dataClass the index of the data class
+     * @return the position of the first accessor of the data class
+     */
+    public int accessorStart(int dataClass) {
+        return accessorOffsets[dataClass];
+    }
+
+    /**
+     * Returns the end (exclusive) of the accessors of the given data class.
+     *
+     * @param dataClass the index of the data class
+     * @return the position after the last accessor of the data class
+     */
+    public int accessorEnd(int dataClass) {
+        return accessorOffsets[dataClass + 1];
+    }
+
+    public int getAccessor(int accessor) {
+        return accessors[accessor];
+    }
+
+    /**
+     * Returns whether the first data relationship of the accessor is of type {@link DataRelationshipType#WRITE}.
+     *
+     * @param accessor the position of the accessor
+     * @return whether the accessor writes to the data class
+     */
+    public boolean isAccessorWrite(int accessor) {
+        return accessorWrites[accessor];
+    }
+
+    /**
+     * Returns the total frequency of the first data relationship of the accessor.
+     *
+     * @param accessor the position of the accessor
+     * @return the total frequency of the data relationship
+     * @see #getDataFrequency(int)
+     */
+    public long getAccessorFrequency(int accessor) {
+        return accessorFrequencies[accessor];
+    }
+
+    /**
+     * Returns the total amount of static calls made by the classes in this graph, including those to classes outside
+     * of this graph.
+     *
+     * @return the total amount of static calls
+     */
+    public long getTotalStaticFrequency() {
+        return totalStaticFrequency;
+    }
+}
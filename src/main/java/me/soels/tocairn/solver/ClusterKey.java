@@ -0,0 +1,58 @@
+package me.soels.tocairn.solver;
+
+import java.util.Arrays;
+
+/**
+ * Compact key identifying a microservice by the classes it contains, used to cache metric calculations per
+ * microservice in {@link OptimizationData}.
+ * <p>
+ * The key consists of the ascending indices of the classes in the {@link ClassGraph} and caches its hash code. As the
+ * indices are sorted, two microservices with the same classes result in equal keys regardless of how they were
+ * constructed. Keys are only comparable when based on the same graph.
+ */
+public final class ClusterKey {
+    private final int[] classes;
+    private final int hash;
+
+    private ClusterKey(int[] classes) {
+        this.classes = classes;
+        this.hash = Arrays.hashCode(classes);
+    }
+
+    /**
+     * Creates the key for the microservice containing the given classes.
+     * <p>
+     * The given array is not copied and should therefore not be modified afterwards.
+     *
+     * @param sortedClasses the indices of the classes in the microservice in ascending order
+     * @return the key for the microservice
+     */
+    public static ClusterKey of(int[] sortedClasses) {
+        return new ClusterKey(sortedClasses);
+    }
+
+    /**
+     * Returns the amount of classes in the microservice identified by this key.
+     *
+     * @return the amount of classes
+     */
+    public int size() {
+        return classes.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        } else if (!(o instanceof ClusterKey)) {
+            return false;
+        }
+        var other = (ClusterKey) o;
+        return hash == other.hash && Arrays.equals(classes, other.classes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
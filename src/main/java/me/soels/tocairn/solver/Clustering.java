@@ -3,61 +3,183 @@ package me.soels.tocairn.solver;
 import com.google.common.collect.ImmutableMap;
 import me.soels.tocairn.model.OtherClass;
 import me.soels.tocairn.solver.moeca.EncodingType;
-import org.apache.commons.lang3.tuple.Pair;
 import org.moeaframework.core.Solution;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
-import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
 
 /**
  * The clustering as decoded from the {@link Solution} based on {@link EncodingType}.
+ * <p>
+ * The clustering is modelled on the indices of the classes in the {@link ClassGraph} such that metrics can be
+ * calculated without map lookups. Clusters are numbered from {@code 0} to {@code k - 1} with {@code k} being the amount
+ * of clusters. The object representations through {@link #getByCluster()} and {@link #getByClass()} are only
+ * constructed once requested.
  */
 public final class Clustering {
-    // The clustering itself modelled in two ways
-    private final Map<Integer, Set<OtherClass>> byCluster;
-    private final Map<OtherClass, Integer> byClass;
     private final OptimizationData optimizationData;
 
+    // The clustering modelled on class indices of the graph
+    private final int[] clusterOfClass;
+    private final int[][] membersOfCluster;
+    private final ClusterKey[] clusterKeys;
+
+    // The clustering itself modelled in two ways, lazily constructed
+    private volatile Map<Integer, Set<OtherClass>> byCluster;
+    private volatile Map<OtherClass, Integer> byClass;
+
+    // Per-cluster metric contributions used to efficiently assess mergers of this clustering
+    private final Map<Object, Object> contributions = new ConcurrentHashMap<>();
+
     /**
      * Constructs the clustering.
      * <p>
-     * Note that the internal maps and lists of this data structure are made unmodifiable to have an immutable data
-     * representation.
+     * The cluster of every class in the graph, as identified by its index, should be normalized to range from
+     * {@code 0} to {@code clusterCount - 1}. The given array is owned by this clustering afterwards and should not be
+     * modified.
      *
-     * @param clustering       the clustering to create
+     * @param clusterOfClass   the normalized cluster of every class in the graph
+     * @param clusterCount     the amount of clusters
      * @param optimizationData optimization data across all clusterings
      */
-    Clustering(Map<Integer, Set<OtherClass>> clustering, OptimizationData optimizationData) {
+    Clustering(int[] clusterOfClass, int clusterCount, OptimizationData optimizationData) {
         this.optimizationData = optimizationData;
-        this.byCluster = ImmutableMap.copyOf(clustering);
-        this.byClass = clustering.entrySet().stream()
-                .flatMap(entry -> entry.getValue().stream().map(clazz -> Pair.of(clazz, entry.getKey())))
-                .collect(toImmutableMap(Pair::getKey, Pair::getValue));
+        this.clusterOfClass = clusterOfClass;
+
+        // Counting sort of the classes by cluster, keeping the members in ascending order
+        var clusterSizes = new int[clusterCount];
+        for (var cluster : clusterOfClass) {
+            clusterSizes[cluster]++;
+        }
+        this.membersOfCluster = new int[clusterCount][];
+        for (var cluster = 0; cluster < clusterCount; cluster++) {
+            membersOfCluster[cluster] = new int[clusterSizes[cluster]];
+            clusterSizes[cluster] = 0;
+        }
+        for (var clazz = 0; clazz < clusterOfClass.length; clazz++) {
+            var cluster = clusterOfClass[clazz];
+            membersOfCluster[cluster][clusterSizes[cluster]++] = clazz;
+        }
+        this.clusterKeys = new ClusterKey[clusterCount];
     }
 
     /**
      * Retrieve the clustering decoded by cluster.
      * <p>
      * This will return an unmodifiable map of cluster numbers and the associates unmodifiable list of classes contained
-     * in that cluster.
+     * in that cluster. The map is constructed on first use.
      *
      * @return the clustering by cluster
      */
     public Map<Integer, Set<OtherClass>> getByCluster() {
-        return byCluster;
+        var result = byCluster;
+        if (result == null) {
+            var graph = getGraph();
+            var builder = ImmutableMap.<Integer, Set<OtherClass>>builderWithExpectedSize(membersOfCluster.length);
+            for (var cluster = 0; cluster < membersOfCluster.length; cluster++) {
+                builder.put(cluster, Arrays.stream(membersOfCluster[cluster])
+                        .mapToObj(graph::getOtherClass)
+                        .collect(toImmutableSet()));
+            }
+            result = builder.build();
+            byCluster = result;
+        }
+        return result;
     }
 
     /**
      * Retrieve the clustering decoded by class.
      * <p>
-     * This will return an unmodifiable map of the classes analyzed and the cluster they were assigned to.
+     * This will return an unmodifiable map of the classes analyzed and the cluster they were assigned to. The map is
+     * constructed on first use.
      *
      * @return the clustering by class
      */
     public Map<OtherClass, Integer> getByClass() {
-        return byClass;
+        var result = byClass;
+        if (result == null) {
+            var graph = getGraph();
+            var builder = ImmutableMap.<OtherClass, Integer>builderWithExpectedSize(clusterOfClass.length);
+            for (var clazz = 0; clazz < clusterOfClass.length; clazz++) {
+                builder.put(graph.getOtherClass(clazz), clusterOfClass[clazz]);
+            }
+            result = builder.build();
+            byClass = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the amount of clusters in this clustering.
+     *
+     * @return the amount of clusters
+     */
+    public int getClusterCount() {
+        return membersOfCluster.length;
+    }
+
+    /**
+     * Returns the cluster the class with the given index in the {@link ClassGraph} is assigned to.
+     *
+     * @param classIndex the index of the class
+     * @return the cluster of the class
+     */
+    public int getClusterOf(int classIndex) {
+        return clusterOfClass[classIndex];
+    }
+
+    /**
+     * Returns the cluster of every class, identified by its index in the {@link ClassGraph}. As the clusters are
+     * normalized, equal clusterings result in equal arrays.
+     * <p>
+     * For performance reasons, the internal array is returned. It should not be modified.
+     *
+     * @return the cluster of every class
+     */
+    public int[] getClusterOfClass() {
+        return clusterOfClass;
+    }
+
+    /**
+     * Returns the indices of the classes in the {@link ClassGraph} assigned to the given cluster in ascending order.
+     * <p>
+     * For performance reasons, the internal array is returned. It should not be modified.
+     *
+     * @param cluster the cluster to retrieve the classes for
+     * @return the indices of the classes in the cluster
+     */
+    public int[] getMembers(int cluster) {
+        return membersOfCluster[cluster];
+    }
+
+    /**
+     * Returns the key identifying the given cluster by its classes. The key is constructed once per cluster.
+     *
+     * @param cluster the cluster to retrieve the key for
+     * @return the key of the cluster
+     */
+    public ClusterKey getClusterKey(int cluster) {
+        var key = clusterKeys[cluster];
+        if (key == null) {
+            // Racing threads construct equal keys, which is harmless as the key is immutable
+            key = ClusterKey.of(membersOfCluster[cluster]);
+            clusterKeys[cluster] = key;
+        }
+        return key;
+    }
+
+    /**
+     * Returns the graph of the classes that are clustered.
+     *
+     * @return the class graph
+     */
+    public ClassGraph getGraph() {
+        return optimizationData.getGraph();
     }
 
     /**
@@ -68,4 +190,54 @@ public final class Clustering {
     public OptimizationData getOptimizationData() {
         return optimizationData;
     }
+
+    /**
+     * Returns the clustering resulting from merging the {@code source} cluster into the {@code target} cluster.
+     * <p>
+     * The clusters are numbered the same as when merging through {@link ClusteringBuilder#mergeCluster(int, int)},
+     * i.e. clusters after the source cluster are shifted down by one. The resulting clustering shares the optimization
+     * data with this clustering.
+     *
+     * @param source the cluster to merge into the target cluster
+     * @param target the cluster to merge the source cluster into
+     * @return the merged clustering
+     */
+    public Clustering merge(int source, int target) {
+        if (source < 0 || source >= getClusterCount()) {
+            throw new IllegalStateException("Could not find clustering with id " + source);
+        } else if (target < 0 || target >= getClusterCount()) {
+            throw new IllegalStateException("Could not find clustering with id " + target);
+        } else if (source == target) {
+            throw new IllegalStateException("Can not merge cluster " + source + " with itself");
+        }
+
+        var mergedTarget = target > source ? target - 1 : target;
+        var merged = new int[clusterOfClass.length];
+        for (var clazz = 0; clazz < clusterOfClass.length; clazz++) {
+            var cluster = clusterOfClass[clazz];
+            if (cluster == source) {
+                merged[clazz] = mergedTarget;
+            } else {
+                merged[clazz] = cluster > source ? cluster - 1 : cluster;
+            }
+        }
+        return new Clustering(merged, getClusterCount() - 1, optimizationData);
+    }
+
+    /**
+     * Returns the per-cluster contributions of a metric for this clustering, calculating them on first use.
+     * <p>
+     * Metrics use these to assess mergers of this clustering without recalculating the unaffected clusters. The
+     * contributions are shared between threads and should therefore not be modified after calculation. The calculator
+     * must not retrieve other contributions of this clustering, these should be retrieved before calling this method.
+     *
+     * @param key        the key identifying the contributions, e.g. the class of the metric
+     * @param calculator the function calculating the contributions for this clustering
+     * @param <T>        the type of the contributions
+     * @return the contributions for this clustering
+     */
+    @SuppressWarnings("unchecked") // The key uniquely identifies the type of contributions, safe cast.
+    public <T> T getContributions(Object key, Function<Clustering, T> calculator) {
+        return (T) contributions.computeIfAbsent(key, k -> calculator.apply(this));
+    }
 }
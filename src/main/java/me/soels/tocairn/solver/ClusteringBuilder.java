@@ -1,6 +1,5 @@
 package me.soels.tocairn.solver;
 
-import me.soels.tocairn.model.DependenceRelationship;
 import me.soels.tocairn.model.OtherClass;
 import me.soels.tocairn.model.Solution;
 
@@ -12,6 +11,10 @@ import java.util.stream.Collectors;
  * A builder for {@link Clustering} to allow for injecting into, merging and normalizing the stored clustering.
  */
 public final class ClusteringBuilder {
+    // Scratch table per thread for decoding clusterings without allocating intermediate structures
+    private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> new int[0]);
+    private static final ThreadLocal<DisjointSets> COMPONENTS = ThreadLocal.withInitial(DisjointSets::new);
+
     private final Map<Integer, Set<OtherClass>> clustering = new HashMap<>();
     private OptimizationData optimizationData;
 
@@ -50,26 +53,203 @@ public final class ClusteringBuilder {
      * @return the normalized clustering
      */
     public Clustering build() {
-        if (optimizationData.getNbTotalCalls() == null) {
-            optimizationData.setNbTotalCalls(getTotalNbCalls());
+        if (optimizationData.getGraph() == null) {
+            optimizationData.setGraph(new ClassGraph(clustering.values().stream()
+                    .flatMap(Collection::stream)
+                    .collect(Collectors.toList())));
         }
-        return new Clustering(normalize(clustering), optimizationData);
+        prepareOptimizationData(optimizationData);
+
+        // Normalize the cluster labels to range from 0 to n - 1 with n being the amount of clusters
+        var graph = optimizationData.getGraph();
+        var clusterOfClass = new int[graph.size()];
+        Arrays.fill(clusterOfClass, -1);
+        var counter = 0;
+        for (var cluster : clustering.values()) {
+            for (var clazz : cluster) {
+                clusterOfClass[graph.indexOf(clazz)] = counter;
+            }
+            counter++;
+        }
+        for (var i = 0; i < clusterOfClass.length; i++) {
+            if (clusterOfClass[i] == -1) {
+                throw new IllegalStateException("Class " + graph.getOtherClass(i).getIdentifier() +
+                        " is not assigned to a cluster");
+            }
+        }
+        return new Clustering(clusterOfClass, counter, optimizationData);
     }
 
     /**
-     * Normalizes the clustering by cluster label to have cluster label from 0 to {@code n - 1} with {@code n} being
-     * the amount of clusters.
+     * Builds the normalized clustering directly from the cluster label of every class in the graph.
+     * <p>
+     * The cluster labels are normalized in order of first occurrence to range from 0 to {@code n - 1} with {@code n}
+     * being the amount of clusters. This does not construct any intermediate object representation of the clustering.
+     * Labels in range of the amount of classes are normalized through a remap table that is reused by the thread.
      *
-     * @param clustering the clustering to normalize
+     * @param labels           the cluster label for every class identified by its index in the graph
+     * @param optimizationData the optimization data containing the {@link ClassGraph} the labels are based on
      * @return the normalized clustering
      */
-    public Map<Integer, Set<OtherClass>> normalize(Map<Integer, Set<OtherClass>> clustering) {
-        Map<Integer, Set<OtherClass>> result = new HashMap<>();
-        var counter = 0;
-        for (var value : clustering.values()) {
-            result.put(counter++, value);
+    public static Clustering fromLabels(int[] labels, OptimizationData optimizationData) {
+        validateSize(labels, optimizationData);
+        prepareOptimizationData(optimizationData);
+
+        var clusterOfClass = new int[labels.length];
+        var count = normalizeLabels(labels, clusterOfClass);
+        return new Clustering(clusterOfClass, count, optimizationData);
+    }
+
+    /**
+     * Normalizes the given cluster labels as done by {@link #fromLabels(int[], OptimizationData)} without
+     * constructing the clustering.
+     *
+     * @param labels         the cluster label for every class
+     * @param clusterOfClass the array to write the normalized cluster of every class to, or {@code null} to only count
+     *                       the clusters
+     * @return the amount of clusters
+     */
+    public static int normalizeLabels(int[] labels, @Nullable int[] clusterOfClass) {
+        var remap = scratch(labels.length);
+        var count = 0;
+        for (var i = 0; i < labels.length; i++) {
+            var label = labels[i];
+            if (label < 0 || label >= labels.length) {
+                // Labels out of range of the remap table, normalize through a map instead
+                Arrays.fill(remap, 0, labels.length, -1);
+                return normalizeLabelsMapped(labels, clusterOfClass);
+            }
+            if (remap[label] == -1) {
+                remap[label] = count++;
+            }
+            if (clusterOfClass != null) {
+                clusterOfClass[i] = remap[label];
+            }
+        }
+        // Leave the remap table empty for the next decoding
+        for (var label : labels) {
+            remap[label] = -1;
+        }
+        return count;
+    }
+
+    private static int normalizeLabelsMapped(int[] labels, @Nullable int[] clusterOfClass) {
+        var normalizationMapping = new HashMap<Integer, Integer>();
+        for (var i = 0; i < labels.length; i++) {
+            var cluster = normalizationMapping.computeIfAbsent(labels[i], key -> normalizationMapping.size());
+            if (clusterOfClass != null) {
+                clusterOfClass[i] = cluster;
+            }
+        }
+        return normalizationMapping.size();
+    }
+
+    /**
+     * Builds the normalized clustering directly from the locus-based adjacency of every class in the graph.
+     * <p>
+     * Every class is linked to the class at the given index, and linked classes belong to the same cluster. The
+     * clusters are the connected components of these links, which are found through {@link DisjointSets} that are
+     * reused by the thread. The clusters are numbered in order of their class with the lowest index. This does not
+     * construct any intermediate object representation of the clustering.
+     *
+     * @param links            the index of the class linked to every class identified by its index in the graph
+     * @param optimizationData the optimization data containing the {@link ClassGraph} the links are based on
+     * @return the normalized clustering
+     */
+    public static Clustering fromLocusAdjacency(int[] links, OptimizationData optimizationData) {
+        validateSize(links, optimizationData);
+        prepareOptimizationData(optimizationData);
+
+        var clusterOfClass = new int[links.length];
+        var count = normalizeLocusAdjacency(links, clusterOfClass);
+        return new Clustering(clusterOfClass, count, optimizationData);
+    }
+
+    /**
+     * Normalizes the given locus-based adjacency as done by {@link #fromLocusAdjacency(int[], OptimizationData)}
+     * without constructing the clustering.
+     *
+     * @param links          the index of the class linked to every class
+     * @param clusterOfClass the array to write the normalized cluster of every class to, or {@code null} to only count
+     *                       the clusters
+     * @return the amount of clusters
+     */
+    public static int normalizeLocusAdjacency(int[] links, @Nullable int[] clusterOfClass) {
+        var components = COMPONENTS.get();
+        components.reset(links.length);
+        for (var i = 0; i < links.length; i++) {
+            var link = links[i];
+            if (link < 0 || link >= links.length) {
+                throw new IllegalArgumentException("Class " + i + " links to class " + link + " which is not in range " +
+                        "of " + links.length + " classes");
+            }
+            components.union(i, link);
+        }
+        return clusterOfClass != null ? components.number(clusterOfClass) : components.count();
+    }
+
+    private static void validateSize(int[] values, OptimizationData optimizationData) {
+        var graph = optimizationData.getGraph();
+        if (graph == null) {
+            throw new IllegalArgumentException("The optimization data does not contain a class graph");
+        } else if (graph.size() != values.length) {
+            throw new IllegalArgumentException("Expected " + graph.size() + " values but got " + values.length);
+        }
+    }
+
+    /**
+     * Returns the scratch table of this thread with at least the given size, of which every value is {@code -1}.
+     * Users should reset the values they changed afterwards.
+     */
+    private static int[] scratch(int size) {
+        var table = SCRATCH.get();
+        if (table.length < size) {
+            table = new int[size];
+            Arrays.fill(table, -1);
+            SCRATCH.set(table);
+        }
+        return table;
+    }
+
+    /**
+     * Builds the clustering directly from the cluster of every class in the graph, keeping the numbering of the
+     * clusters as given.
+     *
+     * @param clusterOfClass   the cluster for every class identified by its index in the graph
+     * @param clusterCount     the amount of clusters, every cluster from 0 to this amount should contain a class
+     * @param optimizationData the optimization data containing the {@link ClassGraph} the clusters are based on
+     * @return the clustering
+     */
+    public static Clustering fromClusterNumbers(int[] clusterOfClass, int clusterCount,
+                                                OptimizationData optimizationData) {
+        var graph = optimizationData.getGraph();
+        if (graph == null) {
+            throw new IllegalArgumentException("The optimization data does not contain a class graph");
+        } else if (graph.size() != clusterOfClass.length) {
+            throw new IllegalArgumentException("Expected " + graph.size() + " clusters but got " +
+                    clusterOfClass.length);
+        }
+        var used = new boolean[clusterCount];
+        for (var cluster : clusterOfClass) {
+            if (cluster < 0 || cluster >= clusterCount) {
+                throw new IllegalArgumentException("Cluster " + cluster + " is not in range of " + clusterCount +
+                        " clusters");
+            }
+            used[cluster] = true;
+        }
+        for (var cluster = 0; cluster < clusterCount; cluster++) {
+            if (!used[cluster]) {
+                throw new IllegalArgumentException("Cluster " + cluster + " does not contain any class");
+            }
+        }
+        prepareOptimizationData(optimizationData);
+        return new Clustering(clusterOfClass.clone(), clusterCount, optimizationData);
+    }
+
+    private static void prepareOptimizationData(OptimizationData optimizationData) {
+        if (optimizationData.getNbTotalCalls() == null) {
+            optimizationData.setNbTotalCalls(optimizationData.getGraph().getTotalStaticFrequency());
         }
-        return result;
     }
 
     /**
@@ -99,29 +279,22 @@ public final class ClusteringBuilder {
         var targetCluster = clustering.get(target);
         var sourceCluster = clustering.get(source);
 
-        // To optimize optimization data, clear the merged clusters
-        optimizationData.clearMicroservice(targetCluster.stream()
-                .map(clazz -> clazz.getId().toString()).sorted()
-                .collect(Collectors.joining("")));
-        optimizationData.clearMicroservice(sourceCluster.stream()
-                .map(clazz -> clazz.getId().toString()).sorted()
-                .collect(Collectors.joining("")));
+        // To optimize optimization data, clear the merged clusters. Nothing is cached yet without a graph.
+        var graph = optimizationData.getGraph();
+        if (graph != null) {
+            optimizationData.clearMicroservice(clusterKey(graph, targetCluster));
+            optimizationData.clearMicroservice(clusterKey(graph, sourceCluster));
+        }
 
         targetCluster.addAll(sourceCluster);
         clustering.remove(source);
     }
 
-    /**
-     * Returns the total number of calls made in the application between {@link OtherClass}.
-     *
-     * @return the total amount of calls made in the application
-     */
-    private long getTotalNbCalls() {
-        return clustering.values().stream()
-                .flatMap(Collection::stream)
-                .flatMap(clazz -> clazz.getDependenceRelationships().stream())
-                .mapToLong(DependenceRelationship::getStaticFrequency)
-                .sum();
+    private ClusterKey clusterKey(ClassGraph graph, Set<OtherClass> cluster) {
+        return ClusterKey.of(cluster.stream()
+                .mapToInt(graph::indexOf)
+                .sorted()
+                .toArray());
     }
 
     /**
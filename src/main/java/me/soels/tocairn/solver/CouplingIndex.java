@@ -0,0 +1,173 @@
+package me.soels.tocairn.solver;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Sparse symmetric index of the amount of calls between pairs of classes in a {@link ClassGraph}.
+ * <p>
+ * For every pair of classes {@code i} and {@code j}, the index holds the static frequency of the first dependency from
+ * {@code i} to {@code j} plus that of the first dependency from {@code j} to {@code i}. Only pairs calling each other
+ * are stored. These can be iterated per class through the neighbours of that class in compressed sparse row (CSR)
+ * format, ordered by the index of the neighbour. The amount of calls of an arbitrary pair can be looked up in constant
+ * time through an open addressing hash table.
+ * <p>
+ * The index is constructed once per graph and shared through {@link OptimizationData}.
+ */
+public final class CouplingIndex {
+    private static final long EMPTY = -1;
+
+    private final int size;
+
+    // Neighbours of every class in CSR format
+    private final int[] neighbourOffsets;
+    private final int[] neighbours;
+    private final long[] neighbourCalls;
+
+    // Open addressing hash table with linear probing of the unordered pairs
+    private final long[] keys;
+    private final long[] values;
+    private final int mask;
+
+    /**
+     * Constructs the coupling index for the given graph.
+     *
+     * @param graph the graph to construct the index for
+     */
+    public CouplingIndex(ClassGraph graph) {
+        this.size = graph.size();
+
+        // Sum the calls of the first dependencies in both directions per unordered pair of classes
+        var pairCalls = new HashMap<Long, Long>();
+        for (var i = 0; i < size; i++) {
+            for (var dep = graph.dependencyStart(i); dep < graph.dependencyEnd(i); dep++) {
+                var j = graph.getTarget(dep);
+                if (i != j && graph.getStaticFrequency(dep) > 0 && graph.findDependency(i, j) == dep) {
+                    pairCalls.merge(key(i, j), (long) graph.getStaticFrequency(dep), Long::sum);
+                }
+            }
+        }
+
+        // Construct the symmetric neighbour lists
+        this.neighbourOffsets = new int[size + 1];
+        for (var key : pairCalls.keySet()) {
+            neighbourOffsets[(int) (key / size) + 1]++;
+            neighbourOffsets[(int) (key % size) + 1]++;
+        }
+        for (var i = 0; i < size; i++) {
+            neighbourOffsets[i + 1] += neighbourOffsets[i];
+        }
+        this.neighbours = new int[neighbourOffsets[size]];
+        this.neighbourCalls = new long[neighbourOffsets[size]];
+        var positions = Arrays.copyOf(neighbourOffsets, size);
+        var sortedKeys = pairCalls.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        for (var key : sortedKeys) {
+            var i = (int) (key / size);
+            var j = (int) (key % size);
+            var calls = pairCalls.get(key);
+            neighbours[positions[i]] = j;
+            neighbourCalls[positions[i]++] = calls;
+            neighbours[positions[j]] = i;
+            neighbourCalls[positions[j]++] = calls;
+        }
+        for (var i = 0; i < size; i++) {
+            sortNeighbours(neighbourOffsets[i], neighbourOffsets[i + 1]);
+        }
+
+        // Construct the lookup table with a load factor of at most 0.5
+        var capacity = Integer.highestOneBit(Math.max(2, pairCalls.size() * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+        for (var key : sortedKeys) {
+            var slot = slot(key);
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = pairCalls.get(key);
+        }
+    }
+
+    private void sortNeighbours(int start, int end) {
+        // Insertion sort as the neighbour lists are short and mostly ordered already
+        for (var pos = start + 1; pos < end; pos++) {
+            var neighbour = neighbours[pos];
+            var calls = neighbourCalls[pos];
+            var insert = pos - 1;
+            while (insert >= start && neighbours[insert] > neighbour) {
+                neighbours[insert + 1] = neighbours[insert];
+                neighbourCalls[insert + 1] = neighbourCalls[insert];
+                insert--;
+            }
+            neighbours[insert + 1] = neighbour;
+            neighbourCalls[insert + 1] = calls;
+        }
+    }
+
+    private long key(int i, int j) {
+        return i < j ? (long) i * size + j : (long) j * size + i;
+    }
+
+    private int slot(long key) {
+        var hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Returns the amount of calls between class {@code i} and class {@code j} in both directions.
+     *
+     * @param i the index of the first class
+     * @param j the index of the second class
+     * @return the amount of calls between both classes
+     */
+    public long getCalls(int i, int j) {
+        if (i == j) {
+            return 0;
+        }
+        var key = key(i, j);
+        var slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the start (inclusive) of the neighbours of the given class.
+     *
+     * @param index the index of the class
+     * @return the position of the first neighbour of the class
+     */
+    public int neighbourStart(int index) {
+        return neighbourOffsets[index];
+    }
+
+    /**
+     * Returns the end (exclusive) of the neighbours of the given class.
+     *
+     * @param index the index of the class
+     * @return the position after the last neighbour of the class
+     */
+    public int neighbourEnd(int index) {
+        return neighbourOffsets[index + 1];
+    }
+
+    public int getNeighbour(int position) {
+        return neighbours[position];
+    }
+
+    /**
+     * Returns the amount of calls in both directions between the class and the neighbour at the given position.
+     *
+     * @param position the position of the neighbour
+     * @return the amount of calls between the class and its neighbour
+     */
+    public long getNeighbourCalls(int position) {
+        return neighbourCalls[position];
+    }
+}
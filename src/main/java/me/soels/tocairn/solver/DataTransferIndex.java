@@ -0,0 +1,88 @@
+package me.soels.tocairn.solver;
+
+import java.util.stream.IntStream;
+
+import static me.soels.tocairn.util.Constants.PRIMITIVE_STRING;
+
+/**
+ * Index of the data transferred over the dependencies in a {@link ClassGraph} as used by the overhead measurement of
+ * Carvalho et al. (2020).
+ * <p>
+ * For every dependency, the index holds the size of the classes shared in that dependency times how often they are
+ * shared. Only the first dependency from a class to another class is taken into account, the other dependencies
+ * between the same classes transfer no data. Classes for which no size is known are given the average size of the
+ * classes in the graph. When the size of none of the classes is known, the average size is {@link Double#NaN} and the
+ * data transferred can not be measured.
+ * <p>
+ * The index is constructed once per graph and shared through {@link OptimizationData}.
+ */
+public final class DataTransferIndex {
+    private static final int PRIMITIVE_SIZE = 4; // Most primitives are allocated with 32 bits = 4 bytes.
+
+    private final double averageSize;
+    private final double[] transferred;
+
+    /**
+     * Constructs the data transfer index for the given graph.
+     *
+     * @param graph the graph to construct the index for
+     */
+    public DataTransferIndex(ClassGraph graph) {
+        this.averageSize = IntStream.range(0, graph.size())
+                .mapToLong(graph::getSize)
+                .filter(size -> size >= 0)
+                .average()
+                .orElse(Double.NaN);
+        this.transferred = new double[graph.getDependencyCount()];
+        for (var i = 0; i < graph.size(); i++) {
+            for (var dep = graph.dependencyStart(i); dep < graph.dependencyEnd(i); dep++) {
+                if (graph.findDependency(i, graph.getTarget(dep)) == dep) {
+                    transferred[dep] = dataTransferred(graph, dep);
+                }
+            }
+        }
+    }
+
+    private double dataTransferred(ClassGraph graph, int dependency) {
+        // Increase sum based size of classes shared in this dependency times how often they are shared
+        var result = 0.0;
+        for (var classShared : graph.getDependency(dependency).getSharedClasses().entrySet()) {
+            result += sizeOf(graph, classShared.getKey()) * classShared.getValue();
+        }
+        return result;
+    }
+
+    private double sizeOf(ClassGraph graph, String classShared) {
+        if (classShared.equals(PRIMITIVE_STRING)) {
+            return PRIMITIVE_SIZE;
+        }
+        var index = graph.indexOf(classShared);
+        if (index < 0 || graph.getSize(index) < 0) {
+            return averageSize;
+        }
+        return graph.getSize(index);
+    }
+
+    /**
+     * Returns whether the size of at least one class is known such that the data transferred can be measured.
+     *
+     * @return whether the data transferred can be measured
+     */
+    public boolean isMeasurable() {
+        return !Double.isNaN(averageSize);
+    }
+
+    public double getAverageSize() {
+        return averageSize;
+    }
+
+    /**
+     * Returns the data transferred in method calls over the given dependency.
+     *
+     * @param dependency the position of the dependency in the graph
+     * @return the data transferred or {@code 0} if this is not the first dependency between its classes
+     */
+    public double getTransferred(int dependency) {
+        return transferred[dependency];
+    }
+}
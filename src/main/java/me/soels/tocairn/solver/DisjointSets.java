@@ -0,0 +1,113 @@
+package me.soels.tocairn.solver;
+
+import java.util.Arrays;
+
+/**
+ * Disjoint sets of the indices from {@code 0} up to a given size, used to find the connected components of a graph.
+ * <p>
+ * Sets are joined by rank and the path to the representative of a set is compressed on every lookup, such that a
+ * sequence of joins and lookups runs in near-linear time regardless of the order in which the sets are joined. The
+ * tables of the sets are reused when {@link #reset(int) resetting} the sets such that the same instance can be used
+ * for decoding many clusterings without allocating. Instances are not thread-safe.
+ */
+final class DisjointSets {
+    private int[] parent = new int[0];
+    private int[] rank = new int[0];
+    private int size;
+
+    /**
+     * Resets these sets to the given amount of singleton sets.
+     *
+     * @param size the amount of indices
+     */
+    void reset(int size) {
+        if (parent.length < size) {
+            parent = new int[size];
+            rank = new int[size];
+        }
+        for (var i = 0; i < size; i++) {
+            parent[i] = i;
+        }
+        Arrays.fill(rank, 0, size, 0);
+        this.size = size;
+    }
+
+    /**
+     * Returns the representative of the set containing the given index.
+     *
+     * @param index the index to find the set of
+     * @return the representative of the set
+     */
+    int find(int index) {
+        var root = index;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        // Compress the path such that every index visited refers to the representative directly
+        while (parent[index] != root) {
+            var next = parent[index];
+            parent[index] = root;
+            index = next;
+        }
+        return root;
+    }
+
+    /**
+     * Joins the sets containing the given indices.
+     *
+     * @param first  an index of the first set
+     * @param second an index of the second set
+     */
+    void union(int first, int second) {
+        var firstRoot = find(first);
+        var secondRoot = find(second);
+        if (firstRoot == secondRoot) {
+            return;
+        }
+        if (rank[firstRoot] < rank[secondRoot]) {
+            parent[firstRoot] = secondRoot;
+        } else if (rank[firstRoot] > rank[secondRoot]) {
+            parent[secondRoot] = firstRoot;
+        } else {
+            parent[secondRoot] = firstRoot;
+            rank[firstRoot]++;
+        }
+    }
+
+    /**
+     * Returns the amount of sets.
+     *
+     * @return the amount of sets
+     */
+    int count() {
+        var count = 0;
+        for (var i = 0; i < size; i++) {
+            if (parent[i] == i) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Numbers the sets in order of their lowest index, writing the number of the set of every index to the given
+     * array. The sets should be {@link #reset(int) reset} before joining sets again.
+     *
+     * @param setOfIndex the array to write the number of the set of every index to
+     * @return the amount of sets
+     */
+    int number(int[] setOfIndex) {
+        // The ranks are no longer needed once numbering, so reuse them to map representatives to their number
+        var numberOfRoot = rank;
+        Arrays.fill(numberOfRoot, 0, size, -1);
+        var count = 0;
+        for (var i = 0; i < size; i++) {
+            var root = find(i);
+            if (numberOfRoot[root] == -1) {
+                numberOfRoot[root] = count++;
+            }
+            setOfIndex[i] = numberOfRoot[root];
+        }
+        return count;
+    }
+}
@@ -1,60 +1,143 @@
 package me.soels.tocairn.solver;
 
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.Getter;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Models optimization data during metric calculation.
  * <p>
  * This class is thread-safe for the purpose to be shared among threads performing the calculations and populating
- * this data. The only except to this is the {@link #getNbTotalCalls()} as this is always calculated with the initial
- * clustering as input for the algorithms which is not yet multi-threaded.
+ * this data. The only except to this is the {@link #getNbTotalCalls()}, {@link #getGraph()} and
+ * {@link #getCouplingIndex()} as these are always calculated with the initial clustering as input for the algorithms
+ * which is not yet multi-threaded. The {@link #getDataTransferIndex()} is constructed on first use as it is only
+ * needed when measuring the data transferred between microservices.
+ * <p>
+ * The caches are bounded by a maximum weight each, where the weight of an entry is the amount of classes in the
+ * microservice it was calculated for. When the maximum weight is exceeded, the entries least likely to be used again
+ * are evicted (W-TinyLFU) such that frequently reoccurring microservices stay cached.
  */
 @Getter
 public class OptimizationData {
+    /**
+     * The default maximum weight of every cache, i.e. the summed amount of classes of the microservices cached.
+     */
+    public static final long DEFAULT_MAX_CACHE_WEIGHT = 2_000_000;
+
     // Calculations performed based on microservices that can be reused in other clusterings, optimization.
-    // Key is a lexicographic order of class UUIDs combined for the microservice.
+    // Key identifies the classes in the microservice.
     // Value is the metric for that microservice
-    private final Map<String, Double> fInter = new ConcurrentHashMap<>();
-    private final Map<String, Double> fIntra = new ConcurrentHashMap<>();
-    private final Map<String, Double> fOne = new ConcurrentHashMap<>();
-    private final Map<String, Double> fAutonomy = new ConcurrentHashMap<>();
+    private final Cache<ClusterKey, Double> fInter;
+    private final Cache<ClusterKey, Double> fIntra;
+    private final Cache<ClusterKey, Double> fOne;
+    private final Cache<ClusterKey, Double> fAutonomy;
+    private final long maxCacheWeight;
 
     // Data that is calculated once for the whole, regardless of how it is clustered.
     private Long nbTotalCalls;
+    private ClassGraph graph;
+    private CouplingIndex couplingIndex;
+    private volatile DataTransferIndex dataTransferIndex;
+
+    public OptimizationData() {
+        // Graph is constructed from the first clustering built.
+        this(DEFAULT_MAX_CACHE_WEIGHT);
+    }
+
+    public OptimizationData(ClassGraph graph) {
+        this(graph, DEFAULT_MAX_CACHE_WEIGHT);
+    }
+
+    public OptimizationData(ClassGraph graph, long maxCacheWeight) {
+        this(maxCacheWeight);
+        setGraph(graph);
+        this.nbTotalCalls = graph.getTotalStaticFrequency();
+    }
+
+    private OptimizationData(long maxCacheWeight) {
+        if (maxCacheWeight <= 0) {
+            throw new IllegalArgumentException("The maximum cache weight should be positive, got " + maxCacheWeight);
+        }
+        this.maxCacheWeight = maxCacheWeight;
+        this.fInter = createCache(maxCacheWeight);
+        this.fIntra = createCache(maxCacheWeight);
+        this.fOne = createCache(maxCacheWeight);
+        this.fAutonomy = createCache(maxCacheWeight);
+    }
+
+    private static Cache<ClusterKey, Double> createCache(long maxCacheWeight) {
+        return Caffeine.newBuilder()
+                .maximumWeight(maxCacheWeight)
+                .weigher((ClusterKey key, Double value) -> key.size())
+                .recordStats()
+                .build();
+    }
 
     public void setNbTotalCalls(long totalNbCalls) {
         this.nbTotalCalls = totalNbCalls;
     }
 
+    public void setGraph(ClassGraph graph) {
+        this.graph = graph;
+        this.couplingIndex = new CouplingIndex(graph);
+        this.dataTransferIndex = null;
+    }
+
+    /**
+     * Returns the data transferred over the dependencies of the graph, constructing it on first use.
+     *
+     * @return the data transfer index of the graph
+     */
+    public DataTransferIndex getDataTransferIndex() {
+        var result = dataTransferIndex;
+        if (result == null) {
+            synchronized (this) {
+                result = dataTransferIndex;
+                if (result == null) {
+                    result = new DataTransferIndex(graph);
+                    dataTransferIndex = result;
+                }
+            }
+        }
+        return result;
+    }
+
     public OptimizationData copy() {
-        var copy = new OptimizationData();
+        var copy = new OptimizationData(maxCacheWeight);
         copy.setNbTotalCalls(this.nbTotalCalls);
-        copy.getFInter().putAll(this.fInter);
-        copy.getFIntra().putAll(this.fIntra);
-        copy.getFOne().putAll(this.fOne);
-        copy.getFAutonomy().putAll(this.fAutonomy);
+        copy.graph = this.graph;
+        copy.couplingIndex = this.couplingIndex;
+        copy.dataTransferIndex = this.dataTransferIndex;
+        copy.getFInter().putAll(this.fInter.asMap());
+        copy.getFIntra().putAll(this.fIntra.asMap());
+        copy.getFOne().putAll(this.fOne.asMap());
+        copy.getFAutonomy().putAll(this.fAutonomy.asMap());
         return copy;
     }
 
-    public boolean hasTooMuchCached() {
-        return fIntra.size() > 100000 || fInter.size() > 100000 || fOne.size() > 100000 || fAutonomy.size() > 100000;
-    }
-
-    public void clearCache() {
-        fIntra.clear();
-        fInter.clear();
-        fOne.clear();
-        fAutonomy.clear();
+    /**
+     * Returns the hit, miss and eviction statistics of the cache of every metric.
+     *
+     * @return the cache statistics by metric
+     */
+    public Map<String, CacheStats> getCacheStats() {
+        var result = new LinkedHashMap<String, CacheStats>();
+        result.put("FInter", fInter.stats());
+        result.put("FIntra", fIntra.stats());
+        result.put("FOne", fOne.stats());
+        result.put("FAutonomy", fAutonomy.stats());
+        return result;
     }
 
-    public void clearMicroservice(String key) {
-        fInter.remove(key);
-        fIntra.remove(key);
-        fOne.remove(key);
-        fAutonomy.remove(key);
+    public void clearMicroservice(ClusterKey key) {
+        fInter.invalidate(key);
+        fIntra.invalidate(key);
+        fOne.invalidate(key);
+        fAutonomy.invalidate(key);
     }
 }
@@ -4,6 +4,10 @@ import me.soels.tocairn.model.EvaluationResult;
 import me.soels.tocairn.model.Solution;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * Represents an algorithm to solve the microservice identification problem.
@@ -19,6 +23,26 @@ public interface Solver {
      */
     EvaluationResult run();
 
+    /**
+     * Runs the solver while handing over every solution to the given persister as soon as it has been produced. The
+     * persister returns the id of the persisted solution, which completes once the solution has been persisted such
+     * that it can be persisted while the solver continues. The solutions handed over are not part of the returned
+     * result.
+     * <p>
+     * Solvers producing their solutions one by one should override this such that their solutions do not have to be
+     * kept in memory until the run has finished. The default implementation hands over the solutions after running.
+     *
+     * @param solutionPersister the persister to hand over the solutions to
+     * @return the result of the run without its solutions
+     */
+    default EvaluationResult run(Function<Solution, CompletableFuture<UUID>> solutionPersister) {
+        var result = run();
+        var solutions = result.getSolutions();
+        result.setSolutions(new ArrayList<>());
+        solutions.forEach(solutionPersister::apply);
+        return result;
+    }
+
     /**
      * Initializes the solver with the optionally given solution.
      *
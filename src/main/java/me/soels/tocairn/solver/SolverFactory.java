@@ -4,7 +4,9 @@ import me.soels.tocairn.model.AHCAConfiguration;
 import me.soels.tocairn.model.Evaluation;
 import me.soels.tocairn.model.EvaluationInput;
 import me.soels.tocairn.model.MOECAConfiguration;
+import me.soels.tocairn.solver.ahca.AHCACheckpointStore;
 import me.soels.tocairn.solver.ahca.AHCASolver;
+import me.soels.tocairn.solver.moeca.IslandModel;
 import me.soels.tocairn.solver.moeca.MOECAExecutor;
 import me.soels.tocairn.solver.moeca.MOECAProblem;
 import me.soels.tocairn.solver.moeca.MOECASolver;
@@ -12,13 +14,16 @@ import me.soels.tocairn.solver.moeca.VariableDecoder;
 import org.springframework.stereotype.Service;
 
 import java.util.Properties;
+import java.util.UUID;
 
 @Service
 public class SolverFactory {
     private final VariableDecoder variableDecoder;
+    private final AHCACheckpointStore checkpointStore;
 
-    public SolverFactory(VariableDecoder variableDecoder) {
+    public SolverFactory(VariableDecoder variableDecoder, AHCACheckpointStore checkpointStore) {
         this.variableDecoder = variableDecoder;
+        this.checkpointStore = checkpointStore;
     }
 
     public Solver createSolver(Evaluation evaluation, EvaluationInput input) {
@@ -26,15 +31,15 @@ public class SolverFactory {
         if (configuration instanceof MOECAConfiguration) {
             return createMOECASolver((MOECAConfiguration) configuration, input);
         } else if (configuration instanceof AHCAConfiguration) {
-            return createAHCASolver((AHCAConfiguration) configuration, input);
+            return createAHCASolver((AHCAConfiguration) configuration, input, evaluation.getId());
         } else {
             throw new IllegalArgumentException("Unknown type of configuration " +
                     configuration.getClass().getSimpleName() + " found for evaluation " + evaluation.getId());
         }
     }
 
-    private AHCASolver createAHCASolver(AHCAConfiguration configuration, EvaluationInput input) {
-        return new AHCASolver(configuration, input);
+    private AHCASolver createAHCASolver(AHCAConfiguration configuration, EvaluationInput input, UUID evaluationId) {
+        return new AHCASolver(configuration, input, checkpoint -> checkpointStore.save(evaluationId, checkpoint));
     }
 
     private MOECASolver createMOECASolver(MOECAConfiguration configuration, EvaluationInput input) {
@@ -54,8 +59,13 @@ public class SolverFactory {
 
     private MOECAExecutor createExecutor(MOECAProblem problem, MOECAConfiguration configuration, Properties properties) {
         var executor = new MOECAExecutor(problem);
-        executor.distributeOnAllCores()
-                .withProperties(properties)
+        if (configuration.getIslands().orElse(1) > 1) {
+            // Every island evaluates its own population, the islands run in parallel instead
+            executor.withIslandModel(new IslandModel(configuration, properties));
+        } else {
+            configuration.getParallelism().ifPresentOrElse(executor::distributeOn, executor::distributeOnAllCores);
+        }
+        executor.withProperties(properties)
                 .withMaxTime(configuration.getMaxTime().orElse(-1L))
                 .withMaxEvaluations(configuration.getMaxEvaluations())
                 .withAlgorithm(configuration.getAlgorithm());
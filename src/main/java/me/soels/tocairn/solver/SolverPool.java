@@ -0,0 +1,120 @@
+package me.soels.tocairn.solver;
+
+import me.soels.tocairn.model.SolverConfiguration;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Dedicated {@link ForkJoinPool} for the parallel work of a {@link Solver}.
+ * <p>
+ * Parallel streams use the common pool by default, which is shared with the other requests handled by the
+ * application, such as the persistence of solutions. A solver therefore runs its parallel work on its own pool with
+ * the parallelism configured in {@link SolverConfiguration#getParallelism()}. Parallel streams started through
+ * {@link #invoke(Supplier)} run on this pool as well. The pool should be closed when the solver is done.
+ * <p>
+ * Through {@link #forEach(int, int, IntConsumer)}, a range of indices is evaluated in chunks. The range is split in
+ * halves until the chunks are small enough, such that idle workers can steal the remaining halves of busy workers.
+ */
+public final class SolverPool implements AutoCloseable {
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+    // Amount of chunks per worker when no chunk size is given, allowing idle workers to steal work
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a pool with the given parallelism.
+     *
+     * @param parallelism the amount of workers of the pool
+     */
+    public SolverPool(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism should be at least 1, got " + parallelism);
+        }
+        var poolNumber = POOL_COUNTER.incrementAndGet();
+        this.pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            var worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            worker.setName("solver-" + poolNumber + "-worker-" + worker.getPoolIndex());
+            return worker;
+        }, null, false);
+    }
+
+    /**
+     * Constructs a pool with the parallelism of the given configuration, defaulting to the amount of available
+     * processors.
+     *
+     * @param configuration the configuration of the solver
+     * @return the pool for the solver
+     */
+    public static SolverPool of(SolverConfiguration configuration) {
+        return new SolverPool(configuration.getParallelism().orElse(Runtime.getRuntime().availableProcessors()));
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Runs the given task on this pool and waits for its result. Parallel streams used by the task run on this pool
+     * instead of the common pool.
+     *
+     * @param task the task to run
+     * @param <T>  the type of the result of the task
+     * @return the result of the task
+     */
+    public <T> T invoke(Supplier<T> task) {
+        return pool.submit(task::get).join();
+    }
+
+    /**
+     * Performs the given action for every index from {@code 0} up to the given size on this pool in chunks.
+     *
+     * @param size      the amount of indices
+     * @param chunkSize the maximum amount of indices to evaluate in one task, or {@code 0} to determine the chunk size
+     *                  based on the parallelism of the pool
+     * @param action    the action to perform for every index
+     */
+    public void forEach(int size, int chunkSize, IntConsumer action) {
+        if (chunkSize < 0) {
+            throw new IllegalArgumentException("Chunk size should not be negative, got " + chunkSize);
+        }
+        var threshold = chunkSize > 0 ? chunkSize : Math.max(1, size / (getParallelism() * CHUNKS_PER_WORKER));
+        pool.invoke(new ChunkedAction(0, size, threshold, action));
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private static final class ChunkedAction extends RecursiveAction {
+        private final int start;
+        private final int end;
+        private final int threshold;
+        private final transient IntConsumer action;
+
+        private ChunkedAction(int start, int end, int threshold, IntConsumer action) {
+            this.start = start;
+            this.end = end;
+            this.threshold = threshold;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= threshold) {
+                for (var i = start; i < end; i++) {
+                    action.accept(i);
+                }
+                return;
+            }
+            var middle = (start + end) >>> 1;
+            invokeAll(new ChunkedAction(start, middle, threshold, action),
+                    new ChunkedAction(middle, end, threshold, action));
+        }
+    }
+}
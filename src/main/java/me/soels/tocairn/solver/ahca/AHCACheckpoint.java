@@ -0,0 +1,129 @@
+package me.soels.tocairn.solver.ahca;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import me.soels.tocairn.solver.metric.MetricType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The state of an AHCA run after a step from which the run can be resumed.
+ * <p>
+ * The checkpoint holds the cluster of every class, identified by its identifier, together with the metric values and
+ * qualities of that clustering, the step counter and whether all combinations are considered. The contributions of
+ * the metrics are not stored as they are recalculated from the clustering on the first evaluation. Furthermore, the
+ * identifiers of the solutions already persisted are kept such that the resumed run can link them to its result.
+ * <p>
+ * Checkpoints are stored in a compact binary format through {@link #writeTo(DataOutput)} and
+ * {@link #readFrom(DataInput)}.
+ */
+@Getter
+@AllArgsConstructor
+public class AHCACheckpoint {
+    private static final int MAGIC = 0x41484341; // "AHCA"
+    private static final int VERSION = 1;
+
+    private final int step;
+    private final boolean allCombinations;
+    private final String[] identifiers;
+    private final int[] clusterOfClass;
+    private final int clusterCount;
+    private final double assessedQuality;
+    private final double totalQuality;
+    private final Map<MetricType, double[]> metrics;
+    private final Map<MetricType, double[]> normalizedMetrics;
+    private final List<UUID> solutionIds;
+
+    /**
+     * Writes this checkpoint to the given output.
+     *
+     * @param output the output to write to
+     * @throws IOException when the checkpoint could not be written
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(step);
+        output.writeBoolean(allCombinations);
+        output.writeInt(clusterCount);
+        output.writeInt(identifiers.length);
+        for (var i = 0; i < identifiers.length; i++) {
+            output.writeUTF(identifiers[i]);
+            output.writeInt(clusterOfClass[i]);
+        }
+        output.writeDouble(assessedQuality);
+        output.writeDouble(totalQuality);
+        writeMetrics(output, metrics);
+        writeMetrics(output, normalizedMetrics);
+        output.writeInt(solutionIds.size());
+        for (var solutionId : solutionIds) {
+            output.writeLong(solutionId.getMostSignificantBits());
+            output.writeLong(solutionId.getLeastSignificantBits());
+        }
+    }
+
+    private static void writeMetrics(DataOutput output, Map<MetricType, double[]> metrics) throws IOException {
+        output.writeInt(metrics.size());
+        for (var entry : metrics.entrySet()) {
+            output.writeUTF(entry.getKey().name());
+            output.writeInt(entry.getValue().length);
+            for (var value : entry.getValue()) {
+                output.writeDouble(value);
+            }
+        }
+    }
+
+    /**
+     * Reads a checkpoint from the given input.
+     *
+     * @param input the input to read from
+     * @return the checkpoint read
+     * @throws IOException when the checkpoint could not be read or is not a valid checkpoint
+     */
+    public static AHCACheckpoint readFrom(DataInput input) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not an AHCA checkpoint");
+        }
+        var version = input.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported AHCA checkpoint version " + version);
+        }
+        var step = input.readInt();
+        var allCombinations = input.readBoolean();
+        var clusterCount = input.readInt();
+        var identifiers = new String[input.readInt()];
+        var clusterOfClass = new int[identifiers.length];
+        for (var i = 0; i < identifiers.length; i++) {
+            identifiers[i] = input.readUTF();
+            clusterOfClass[i] = input.readInt();
+        }
+        var assessedQuality = input.readDouble();
+        var totalQuality = input.readDouble();
+        var metrics = readMetrics(input);
+        var normalizedMetrics = readMetrics(input);
+        var solutionIds = new ArrayList<UUID>();
+        var nbSolutions = input.readInt();
+        for (var i = 0; i < nbSolutions; i++) {
+            solutionIds.add(new UUID(input.readLong(), input.readLong()));
+        }
+        return new AHCACheckpoint(step, allCombinations, identifiers, clusterOfClass, clusterCount, assessedQuality,
+                totalQuality, metrics, normalizedMetrics, solutionIds);
+    }
+
+    private static Map<MetricType, double[]> readMetrics(DataInput input) throws IOException {
+        Map<MetricType, double[]> result = new EnumMap<>(MetricType.class);
+        var nbMetricTypes = input.readInt();
+        for (var i = 0; i < nbMetricTypes; i++) {
+            var metricType = MetricType.valueOf(input.readUTF());
+            var values = new double[input.readInt()];
+            for (var j = 0; j < values.length; j++) {
+                values[j] = input.readDouble();
+            }
+            result.put(metricType, values);
+        }
+        return result;
+    }
+}
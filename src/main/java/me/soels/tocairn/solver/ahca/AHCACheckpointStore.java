@@ -0,0 +1,108 @@
+package me.soels.tocairn.solver.ahca;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Service responsible for storing the {@link AHCACheckpoint} of every evaluation on local disk.
+ * <p>
+ * Only the latest checkpoint of an evaluation is kept. Checkpoints are first written to a temporary file which then
+ * replaces the previous checkpoint such that a crash while writing does not corrupt the previous checkpoint.
+ */
+@Service
+public class AHCACheckpointStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AHCACheckpointStore.class);
+    private static final String EXTENSION = ".ahca";
+    private final Path directory;
+
+    public AHCACheckpointStore(@Value("${tocairn.ahca.checkpoint-directory:checkpoints}") Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Stores the given checkpoint as the latest checkpoint of the given evaluation.
+     * <p>
+     * Failing to store the checkpoint is logged, but does not stop the run.
+     *
+     * @param evaluationId the evaluation to store the checkpoint for
+     * @param checkpoint   the checkpoint to store
+     */
+    public void save(UUID evaluationId, AHCACheckpoint checkpoint) {
+        Path temporaryFile = null;
+        try {
+            Files.createDirectories(directory);
+            temporaryFile = Files.createTempFile(directory, evaluationId.toString(), EXTENSION + ".tmp");
+            try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                checkpoint.writeTo(output);
+            }
+            Files.move(temporaryFile, getPath(evaluationId), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.info("Stored checkpoint of step {} for evaluation {}", checkpoint.getStep(), evaluationId);
+        } catch (IOException e) {
+            LOGGER.warn("Could not store checkpoint of step " + checkpoint.getStep() + " for evaluation " +
+                    evaluationId, e);
+            deleteTemporaryFile(temporaryFile);
+        }
+    }
+
+    private void deleteTemporaryFile(@Nullable Path temporaryFile) {
+        if (temporaryFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temporaryFile);
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete temporary checkpoint file " + temporaryFile, e);
+        }
+    }
+
+    /**
+     * Returns the latest checkpoint of the given evaluation.
+     *
+     * @param evaluationId the evaluation to retrieve the checkpoint for
+     * @return the latest checkpoint or an empty optional if the evaluation has no checkpoint
+     * @throws IllegalStateException when the checkpoint could not be read
+     */
+    public Optional<AHCACheckpoint> load(UUID evaluationId) {
+        var path = getPath(evaluationId);
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            return Optional.of(AHCACheckpoint.readFrom(input));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read checkpoint " + path + " of evaluation " + evaluationId, e);
+        }
+    }
+
+    public boolean exists(UUID evaluationId) {
+        return Files.exists(getPath(evaluationId));
+    }
+
+    /**
+     * Deletes the checkpoint of the given evaluation, if present.
+     *
+     * @param evaluationId the evaluation to delete the checkpoint for
+     */
+    public void delete(UUID evaluationId) {
+        try {
+            Files.deleteIfExists(getPath(evaluationId));
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete checkpoint of evaluation " + evaluationId, e);
+        }
+    }
+
+    private Path getPath(UUID evaluationId) {
+        return directory.resolve(evaluationId + EXTENSION);
+    }
+}
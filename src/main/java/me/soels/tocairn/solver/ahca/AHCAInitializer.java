@@ -1,8 +1,10 @@
 package me.soels.tocairn.solver.ahca;
 
 import me.soels.tocairn.model.*;
+import me.soels.tocairn.solver.ClassGraph;
 import me.soels.tocairn.solver.Clustering;
 import me.soels.tocairn.solver.ClusteringBuilder;
+import me.soels.tocairn.solver.OptimizationData;
 import me.soels.tocairn.solver.metric.QualityCalculator;
 
 import java.util.*;
@@ -113,7 +115,8 @@ public class AHCAInitializer {
      * @return the initial clustering solution
      */
     static AHCAClustering createInitialSolution(AHCAConfiguration configuration, EvaluationInput input) {
-        var builder = new ClusteringBuilder();
+        var builder = new ClusteringBuilder()
+                .withOptimizationData(new OptimizationData(new ClassGraph(input)));
         for (int i = 0; i < input.getOtherClasses().size(); i++) {
             builder.addToCluster(input.getOtherClasses().get(i), i);
         }
@@ -129,14 +132,54 @@ public class AHCAInitializer {
     /**
      * Creates a clustering based on the given solution.
      *
-     * @param solution the solution to create a clustering for
+     * @param configuration the configuration for the AHCA.
+     * @param input         the class dependency graph
+     * @param solution      the solution to create a clustering for
      * @return the AHCA clustering
      */
-    static AHCAClustering createClusteringFromSolution(AHCAConfiguration configuration, Solution solution) {
-        var clustering = new ClusteringBuilder(solution).build();
+    static AHCAClustering createClusteringFromSolution(AHCAConfiguration configuration, EvaluationInput input, Solution solution) {
+        var clustering = new ClusteringBuilder(solution)
+                .withOptimizationData(new OptimizationData(new ClassGraph(input)))
+                .build();
         return createClustering(configuration, solution, clustering);
     }
 
+    /**
+     * Creates the clustering stored in the given checkpoint.
+     *
+     * @param input      the class dependency graph
+     * @param checkpoint the checkpoint to create the clustering from
+     * @return the AHCA clustering
+     */
+    static AHCAClustering createClusteringFromCheckpoint(EvaluationInput input, AHCACheckpoint checkpoint) {
+        var optimizationData = new OptimizationData(new ClassGraph(input));
+        var graph = optimizationData.getGraph();
+        if (graph.size() != checkpoint.getIdentifiers().length) {
+            throw new IllegalArgumentException("The checkpoint contains " + checkpoint.getIdentifiers().length +
+                    " classes while the input contains " + graph.size() + " classes");
+        }
+        var clusterOfClass = new int[graph.size()];
+        for (var i = 0; i < checkpoint.getIdentifiers().length; i++) {
+            var index = graph.indexOf(checkpoint.getIdentifiers()[i]);
+            if (index < 0) {
+                throw new IllegalArgumentException("Class " + checkpoint.getIdentifiers()[i] +
+                        " of the checkpoint is not part of the input");
+            }
+            clusterOfClass[index] = checkpoint.getClusterOfClass()[i];
+        }
+        var clustering = ClusteringBuilder.fromClusterNumbers(clusterOfClass, checkpoint.getClusterCount(),
+                optimizationData);
+
+        var solution = new Solution();
+        solution.setMicroservices(clustering.getByCluster().entrySet().stream()
+                .map(entry -> new Microservice(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList()));
+        solution.setMetricValues(checkpoint.getMetrics());
+        solution.setNormalizedMetricValues(checkpoint.getNormalizedMetrics());
+        return new AHCAClustering(clustering, solution, checkpoint.getAssessedQuality(),
+                checkpoint.getTotalQuality());
+    }
+
     private static AHCAClustering createClustering(AHCAConfiguration configuration, Solution solution, Clustering clustering) {
         solution.setMetricValues(QualityCalculator.performMetrics(configuration, clustering));
         // Note, we do not do normalization of the metrics in this step as there is only one clustering in initialization.
@@ -2,36 +2,67 @@ package me.soels.tocairn.solver.ahca;
 
 import me.soels.tocairn.model.*;
 import me.soels.tocairn.solver.Clustering;
-import me.soels.tocairn.solver.ClusteringBuilder;
 import me.soels.tocairn.solver.Solver;
+import me.soels.tocairn.solver.SolverPool;
+import me.soels.tocairn.solver.metric.MetricEvaluator;
 import me.soels.tocairn.solver.metric.MetricType;
 import me.soels.tocairn.solver.metric.QualityCalculator;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.apache.commons.lang3.tuple.Pair;
-import org.apache.commons.lang3.tuple.Triple;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-
-import static me.soels.tocairn.solver.metric.QualityCalculator.normalize;
+import java.util.stream.IntStream;
 
 /**
  * Solver implementation using the agglomorative hierarchical clustering algorithm (AHCA).
+ * <p>
+ * The mergers are evaluated on a dedicated {@link SolverPool} during {@link #run()} such that a long running AHCA does
+ * not occupy the common pool used by the rest of the application.
+ * <p>
+ * The solutions are handed over as soon as they are produced through {@link #run(Function)}. When a checkpoint
+ * interval is configured, the state of the run is handed over to the checkpoint consumer every that many steps, after
+ * waiting for the solutions handed over so far to be persisted. A run can be resumed from such a checkpoint through
+ * {@link #resume(AHCACheckpoint)}.
  */
 public class AHCASolver implements Solver {
     private static final Logger LOGGER = LoggerFactory.getLogger(AHCASolver.class);
     private final AHCAConfiguration configuration;
     private Map<OtherClass, List<OtherClass>> classConnections;
     private final EvaluationInput input;
+    private final MetricEvaluator evaluator;
+    @Nullable
+    private final Consumer<AHCACheckpoint> checkpointConsumer;
+    private final List<UUID> solutionIds = new ArrayList<>();
+    private final List<CompletableFuture<UUID>> pendingSolutionIds = new ArrayList<>();
+    private boolean checkpointing;
     private AHCAClustering initialClustering;
+    private boolean initialAllCombinations;
+    private SolverPool pool;
 
     public AHCASolver(AHCAConfiguration configuration, EvaluationInput input) {
+        this(configuration, input, null);
+    }
+
+    public AHCASolver(AHCAConfiguration configuration, EvaluationInput input,
+                      @Nullable Consumer<AHCACheckpoint> checkpointConsumer) {
         this.configuration = configuration;
         this.input = input;
+        this.evaluator = new MetricEvaluator(configuration.getMetrics());
+        this.checkpointConsumer = checkpointConsumer;
+        if (configuration.getWeights().size() != evaluator.getObjectiveCount()) {
+            // The configuration was validated against the metrics registered at the time it was created
+            throw new IllegalArgumentException("The configuration has " + configuration.getWeights().size() +
+                    " weights but its metric types have " + evaluator.getObjectiveCount() + " metrics. Create a new " +
+                    "configuration with one weight for every metric.");
+        }
     }
 
     @Override
@@ -41,48 +72,140 @@ public class AHCASolver implements Solver {
         if (solution == null) {
             initialClustering = AHCAInitializer.createInitialSolution(configuration, input);
         } else {
-            initialClustering = AHCAInitializer.createClusteringFromSolution(configuration, solution);
+            initialClustering = AHCAInitializer.createClusteringFromSolution(configuration, input, solution);
         }
+        initialAllCombinations = !configuration.isOptimizationOnSharedEdges();
+    }
 
+    /**
+     * Initializes the solver to continue the run from which the given checkpoint was taken.
+     * <p>
+     * When using lazy merge evaluation, the queue of mergers is not part of the checkpoint. Instead, the mergers of the
+     * clustering in the checkpoint are evaluated again.
+     *
+     * @param checkpoint the checkpoint to continue from
+     */
+    public void resume(AHCACheckpoint checkpoint) {
+        classConnections = AHCAInitializer.calculateClassConnectedness(input);
+        initialClustering = AHCAInitializer.createClusteringFromCheckpoint(input, checkpoint);
+        initialAllCombinations = checkpoint.isAllCombinations();
+        solutionIds.addAll(checkpoint.getSolutionIds());
+        LOGGER.info("Resuming AHCA from checkpoint of step {}", checkpoint.getStep());
     }
 
+    /**
+     * Runs the solver while keeping all solutions in memory. As the solutions are not persisted, no checkpoints are
+     * taken.
+     *
+     * @return the microservice boundaries identified
+     */
     @Override
     public AHCAEvaluationResult run() {
-        LOGGER.info("Running agglomerative hierarchical clustering algorithm (AHCA)");
-        var solutions = performAlgorithm();
-        LOGGER.info("AHCA solver produced {} solutions", solutions.size());
-
-        var result = new AHCAEvaluationResult();
+        var solutions = new ArrayList<Solution>();
+        var result = run(solution -> {
+            solutions.add(solution);
+            return CompletableFuture.completedFuture(null);
+        }, false);
         result.setSolutions(solutions);
         return result;
     }
 
+    @Override
+    public AHCAEvaluationResult run(Function<Solution, CompletableFuture<UUID>> solutionPersister) {
+        return run(solutionPersister, true);
+    }
+
+    private AHCAEvaluationResult run(Function<Solution, CompletableFuture<UUID>> solutionPersister,
+                                     boolean checkpoints) {
+        LOGGER.info("Running agglomerative hierarchical clustering algorithm (AHCA)");
+        checkpointing = checkpoints;
+        int nbSolutions;
+        try (var solverPool = SolverPool.of(configuration)) {
+            pool = solverPool;
+            LOGGER.info("Using {} threads for evaluating mergers", pool.getParallelism());
+            nbSolutions = configuration.isLazyMergeEvaluation() ? performLazyAlgorithm(solutionPersister) :
+                    performAlgorithm(solutionPersister);
+        }
+        LOGGER.info("AHCA solver produced {} solutions", nbSolutions);
+        return new AHCAEvaluationResult();
+    }
+
+    /**
+     * Hands over the solution of the given clustering to the persister. The id returned by the persister is included
+     * in subsequent checkpoints.
+     *
+     * @param solutionPersister the persister to hand over the solution to
+     * @param clustering        the clustering to hand over the solution of
+     */
+    private void handOver(Function<Solution, CompletableFuture<UUID>> solutionPersister, AHCAClustering clustering) {
+        pendingSolutionIds.add(solutionPersister.apply(clustering.getSolution()));
+    }
+
+    /**
+     * Hands over the state of the run to the checkpoint consumer when a checkpoint is due at the given step.
+     *
+     * @param step            the step just performed
+     * @param startStep       the step the run started from
+     * @param allCombinations whether all combinations are considered from now on
+     * @param current         the clustering resulting from the step
+     */
+    private void checkpoint(int step, int startStep, boolean allCombinations, AHCAClustering current) {
+        var interval = configuration.getCheckpointInterval();
+        if (!checkpointing || checkpointConsumer == null || interval.isEmpty() ||
+                (step - startStep) % interval.get() != 0) {
+            return;
+        }
+
+        // Wait for the solutions handed over so far to be persisted such that the checkpoint includes all of them
+        for (var pending : pendingSolutionIds) {
+            var solutionId = pending.join();
+            if (solutionId == null) {
+                throw new IllegalStateException("The persister did not return the id of a persisted solution");
+            }
+            solutionIds.add(solutionId);
+        }
+        pendingSolutionIds.clear();
+        var clustering = current.getClustering();
+        var graph = clustering.getGraph();
+        var identifiers = new String[graph.size()];
+        var clusterOfClass = new int[graph.size()];
+        for (var i = 0; i < graph.size(); i++) {
+            identifiers[i] = graph.getOtherClass(i).getIdentifier();
+            clusterOfClass[i] = clustering.getClusterOf(i);
+        }
+        checkpointConsumer.accept(new AHCACheckpoint(step, allCombinations, identifiers, clusterOfClass,
+                clustering.getClusterCount(), current.getAssessedQuality(), current.getTotalQuality(),
+                current.getSolution().getMetricValues(), current.getSolution().getNormalizedMetricValues(),
+                List.copyOf(solutionIds)));
+    }
+
     /**
      * Performs the agglomerative hierarchical clustering algorithm (AHCA) clustering.
      *
-     * @return the preferable solution (if present)
+     * @param solutionPersister the persister to hand over the solutions to
+     * @return the amount of solutions handed over
      */
     // Suppress warnings as it is more readable in this case. Two retry conditions and one (unlikely) break condition.
     @SuppressWarnings("java:S135")
-    private List<Solution> performAlgorithm() {
+    private int performAlgorithm(Function<Solution, CompletableFuture<UUID>> solutionPersister) {
         // Config
         int minClusters = configuration.getMinClusterAmount().orElse(2);
-        int maxClusters = configuration.getMaxClusterAmount().orElse(initialClustering.getClustering().getByClass().size());
+        int maxClusters = configuration.getMaxClusterAmount().orElse(initialClustering.getClustering().getGraph().size());
 
         // State
-        var solutionsToPersist = new ArrayList<Solution>();
+        var nbSolutions = 0;
         var previousClustering = initialClustering;
-        var allCombinations = !configuration.isOptimizationOnSharedEdges();
-        var startStep = initialClustering.getClustering().getByClass().size() - initialClustering.getClustering().getByCluster().size();
+        var allCombinations = initialAllCombinations;
+        var startStep = initialClustering.getClustering().getGraph().size() - initialClustering.getClustering().getClusterCount();
         var counter = startStep;
-        var targetStep = initialClustering.getClustering().getByClass().size() - minClusters + 1;
+        var targetStep = initialClustering.getClustering().getGraph().size() - minClusters + 1;
 
 
-        LOGGER.info("Going to start AHCA from step {} out of total {}.", counter, initialClustering.getClustering().getByClass().size());
+        LOGGER.info("Going to start AHCA from step {} out of total {}.", counter, initialClustering.getClustering().getGraph().size());
         LOGGER.info("Going to continue until step {} based on {}.", targetStep, configuration.getMinClusterAmount().isPresent() ? "minClusterAmount" : "the default end of algorithm");
         logStep(counter, targetStep, System.currentTimeMillis(), "N/A", previousClustering);
 
-        while (previousClustering.getClustering().getByCluster().size() > minClusters) {
+        while (previousClustering.getClustering().getClusterCount() > minClusters) {
             var iterationTimer = System.currentTimeMillis();
 
             // Get merger pairs
@@ -116,21 +239,211 @@ public class AHCASolver implements Solver {
 
             // Persist if wanted and log step
             counter++;
-            if (best.getClustering().getByCluster().size() <= maxClusters) {
+            if (best.getClustering().getClusterCount() <= maxClusters) {
                 LOGGER.info("Persisted solution at step {}", counter);
-                solutionsToPersist.add(best.getSolution());
+                handOver(solutionPersister, best);
+                nbSolutions++;
             }
             logStep(counter, targetStep, iterationTimer, String.valueOf(possiblePairs.size()), best);
+            checkpoint(counter, startStep, allCombinations, best);
 
             // Set state for next iteration
             previousClustering = best;
         }
-        return solutionsToPersist;
+        return nbSolutions;
+    }
+
+    /**
+     * Performs the agglomerative hierarchical clustering algorithm (AHCA) clustering while keeping the possible mergers
+     * in a priority queue over the steps.
+     * <p>
+     * Similar to Clauset, Newman & Moore, only the mergers involving the merged microservice are evaluated after a step.
+     * The queue is ordered by the quality change of a merger relative to the clustering it was evaluated on, such that
+     * mergers evaluated on different clusterings can be compared. The quality changes of the other mergers in the
+     * queue are kept as estimate. Mergers whose estimate is better than the best merger evaluated on the current
+     * clustering are re-evaluated on the current clustering (lazy greedy) and put back with their updated quality
+     * change. As the queue spans over multiple clusterings, the metrics are not normalized in this mode and the
+     * iteration is not retried when the quality got worse.
+     *
+     * @param solutionPersister the persister to hand over the solutions to
+     * @return the amount of solutions handed over
+     */
+    private int performLazyAlgorithm(Function<Solution, CompletableFuture<UUID>> solutionPersister) {
+        // Config
+        var graph = initialClustering.getClustering().getGraph();
+        int minClusters = configuration.getMinClusterAmount().orElse(2);
+        int maxClusters = configuration.getMaxClusterAmount().orElse(graph.size());
+
+        // State
+        var nbSolutions = 0;
+        var current = initialClustering;
+        var allCombinations = initialAllCombinations;
+        var startStep = graph.size() - current.getClustering().getClusterCount();
+        var counter = startStep;
+        var targetStep = graph.size() - minClusters + 1;
+        var queue = new PriorityQueue<QueuedMerger>(Comparator.comparingDouble(QueuedMerger::getQualityChange));
+        // The version of every microservice, identified by its first class, to detect mergers of merged microservices
+        var versions = new int[graph.size()];
+        queue.addAll(evaluateMergers(current, getPossibleMergers(current, allCombinations), versions, counter));
+
+        LOGGER.info("Going to start lazy AHCA from step {} out of total {}.", counter, graph.size());
+        logStep(counter, targetStep, System.currentTimeMillis(), "N/A", current);
+        while (current.getClustering().getClusterCount() > minClusters) {
+            var iterationTimer = System.currentTimeMillis();
+            var clustering = current.getClustering();
+            var best = pollBestMerger(queue, current, versions, counter);
+            if (best == null && !allCombinations) {
+                LOGGER.info("No more possible merger based on sharing edges. Continuing with all combinations.");
+                allCombinations = true;
+                queue.addAll(evaluateMergers(current, getAllPossibleMergers(clustering), versions, counter));
+                continue;
+            } else if (best == null) {
+                LOGGER.warn("No more possible mergers even though we consider all combinations. Stopping algorithm.");
+                break;
+            }
+
+            // Perform the merger and invalidate the mergers of both merged microservices
+            var source = best.getPair().getKey();
+            var target = best.getPair().getValue();
+            var mergedRepresentative = Math.min(representative(clustering, source), representative(clustering, target));
+            current = createClustering(clustering, best);
+            versions[mergedRepresentative]++;
+            counter++;
+            if (current.getClustering().getClusterCount() <= maxClusters) {
+                LOGGER.info("Persisted solution at step {}", counter);
+                handOver(solutionPersister, current);
+                nbSolutions++;
+            }
+
+            // Add the mergers of the merged microservice in the new clustering
+            var merged = current.getClustering().getClusterOf(mergedRepresentative);
+            queue.addAll(evaluateMergers(current, getPossibleMergers(current.getClustering(), merged, allCombinations),
+                    versions, counter));
+            logStep(counter, targetStep, iterationTimer, String.valueOf(queue.size()), current);
+            checkpoint(counter, startStep, allCombinations, current);
+        }
+        return nbSolutions;
+    }
+
+    /**
+     * Retrieves the best merger from the queue for the given clustering. The mergers in front of the best merger
+     * evaluated on the given clustering are re-evaluated on the pool in batches and put back until the best merger in
+     * the queue has been evaluated on the given clustering. Mergers of microservices that have been merged since are
+     * discarded.
+     *
+     * @param queue    the queue of mergers
+     * @param current  the current clustering
+     * @param versions the version of every microservice
+     * @param step     the current step
+     * @return the best merger evaluated on the current clustering or {@code null} if there are none left
+     */
+    @Nullable
+    private MergeCandidate pollBestMerger(PriorityQueue<QueuedMerger> queue, AHCAClustering current, int[] versions,
+                                          int step) {
+        var clustering = current.getClustering();
+        var stale = new ArrayList<QueuedMerger>();
+        while (true) {
+            var merger = queue.poll();
+            if (merger != null && isOutdated(merger, clustering, versions)) {
+                continue;
+            } else if (merger == null && stale.isEmpty()) {
+                return null;
+            } else if (merger != null && merger.getStep() == step && stale.isEmpty()) {
+                return merger.getCandidate();
+            }
+
+            if (merger == null || merger.getStep() == step || stale.size() == pool.getParallelism()) {
+                // Re-evaluate the stale mergers in front of this merger and put them back to retry
+                if (merger != null) {
+                    queue.add(merger);
+                }
+                queue.addAll(reevaluateMergers(current, stale, versions, step));
+                stale.clear();
+            } else {
+                stale.add(merger);
+            }
+        }
+    }
+
+    private boolean isOutdated(QueuedMerger merger, Clustering clustering, int[] versions) {
+        // One of the microservices has been merged since this merger was evaluated
+        return versions[merger.getFirst()] != merger.getFirstVersion() ||
+                versions[merger.getSecond()] != merger.getSecondVersion() ||
+                representative(clustering, clustering.getClusterOf(merger.getFirst())) != merger.getFirst() ||
+                representative(clustering, clustering.getClusterOf(merger.getSecond())) != merger.getSecond();
+    }
+
+    private List<QueuedMerger> reevaluateMergers(AHCAClustering current, List<QueuedMerger> mergers, int[] versions,
+                                                 int step) {
+        return pool.invoke(() -> mergers.parallelStream()
+                .map(merger -> evaluateMerger(current, merger.getFirst(), merger.getSecond(), versions, step))
+                .collect(Collectors.toList()));
+    }
+
+    private List<QueuedMerger> evaluateMergers(AHCAClustering current, List<Pair<Integer, Integer>> possibleMergers,
+                                               int[] versions, int step) {
+        var clustering = current.getClustering();
+        return pool.invoke(() -> possibleMergers.parallelStream()
+                .map(pair -> evaluateMerger(current, representative(clustering, pair.getKey()),
+                        representative(clustering, pair.getValue()), versions, step))
+                .collect(Collectors.toList()));
+    }
+
+    private QueuedMerger evaluateMerger(AHCAClustering current, int first, int second, int[] versions, int step) {
+        var clustering = current.getClustering();
+        var pair = Pair.of(clustering.getClusterOf(first), clustering.getClusterOf(second));
+        var metrics = evaluator.byMetricType(evaluator.evaluateForMerge(clustering, pair.getKey(), pair.getValue()));
+        var quality = QualityCalculator.getWeightedTotalQuality(metrics, configuration.getWeights());
+        var candidate = new MergeCandidate(pair, quality, quality, metrics, Collections.emptyMap());
+        return new QueuedMerger(first, versions[first], second, versions[second], step,
+                quality - current.getTotalQuality(), candidate);
+    }
+
+    private int representative(Clustering clustering, int cluster) {
+        return clustering.getMembers(cluster)[0];
+    }
+
+    /**
+     * Get the possible mergers of the given microservice with the other microservices in the given clustering.
+     *
+     * @param clustering      the current step's clustering
+     * @param cluster         the microservice to merge with
+     * @param allCombinations whether to return all other microservices instead of those sharing an (in)direct edge
+     * @return the possible mergers of the microservice
+     * @see #getPossibleMergers(AHCAClustering, boolean)
+     */
+    private List<Pair<Integer, Integer>> getPossibleMergers(Clustering clustering, int cluster,
+                                                            boolean allCombinations) {
+        var graph = clustering.getGraph();
+        var others = new TreeSet<Integer>();
+        if (allCombinations) {
+            IntStream.range(0, clustering.getClusterCount()).forEach(others::add);
+        } else {
+            for (var clazz : clustering.getMembers(cluster)) {
+                classConnections.get(graph.getOtherClass(clazz)).forEach(connectedClass ->
+                        others.add(clustering.getClusterOf(graph.indexOf(connectedClass))));
+            }
+        }
+        others.remove(cluster);
+        return others.stream()
+                .map(other -> other < cluster ? Pair.of(other, cluster) : Pair.of(cluster, other))
+                .collect(Collectors.toList());
     }
 
     /**
      * Retrieves the best clustering from the given possible mergers for the current clustering based on the weighted
      * quality function from the configured metrics.
+     * <p>
+     * The metrics of a merger are calculated from the contributions of the microservices in the previous clustering
+     * such that only the best merger is constructed as a clustering.
+     * <p>
+     * When normalizing, this is done in two passes. The first pass stores the metric values of every merger in one
+     * primitive array from which the minimum and maximum value of every metric are determined. The second pass
+     * normalizes the metric values of every merger to select the best merger. This way, only the metric values of the
+     * mergers are kept in memory.
+     * <p>
+     * When not normalizing and {@link AHCAConfiguration#isBoundedMergeEvaluation()} is set, the evaluation of a merger
+     * is abandoned as soon as it can no longer improve on the best merger evaluated so far.
      *
      * @param possibleMergers    the possible pairs of microservices to merge
      * @param previousClustering the previous step's best clustering
@@ -138,80 +451,170 @@ public class AHCASolver implements Solver {
      */
     private AHCAClustering getBestMerger(List<Pair<Integer, Integer>> possibleMergers,
                                          AHCAClustering previousClustering) {
-        AtomicReference<AHCAClustering> bestClustering = new AtomicReference<>();
-
-        var normalizationClusters = new ArrayList<Triple<Clustering, Double, Map<MetricType, double[]>>>();
-        possibleMergers.parallelStream()
-                .forEach(pair -> {
-                    // Copy the graph, merge the clusters
-                    var merger = new ClusteringBuilder(previousClustering.getClustering());
-                    merger.mergeCluster(pair.getKey(), pair.getValue());
-                    var clustering = merger.build();
-                    var metrics = QualityCalculator.performMetrics(configuration, clustering);
-
-                    // Calculate weighted total quality.
-                    double weightedQuality = QualityCalculator.getWeightedTotalQuality(metrics, configuration.getWeights());
-
-                    if (configuration.isNormalizeMetrics()) {
-                        // When normalizing, store in a data structure. We will then recalculate the metrics in a later
-                        // stage and reselect the best clustering. Note, as we persist the clustering outside the stream,
-                        // this will not scale memory-wise due to many possible mergers (e.g. 100K+ or 1M+).
-                        normalizationClusters.add(Triple.of(clustering, weightedQuality, metrics));
-                    }
-                    // Keep best.
-                    checkAndSetBestQuality(bestClustering, clustering, weightedQuality, weightedQuality, metrics, Collections.emptyMap());
-                });
-
-        if (normalizationClusters.size() > 1) {
-            // We should normalize. Recalculate metrics and select new best based the normalized weighted values.
-            bestClustering.set(null);
-
-            var minMaxValues = QualityCalculator.getMinMaxValues(normalizationClusters.stream()
-                    .map(Triple::getRight)
-                    .collect(Collectors.toList())
-            );
-
-            normalizationClusters.forEach(clusteringTriple -> {
-                // Normalize the metrics for this clustering
-                Map<MetricType, double[]> normalizedMetrics = normalize(clusteringTriple.getRight(), minMaxValues);
-                // Calculate weighted total quality.
-                double normalizedQuality = QualityCalculator.getWeightedTotalQuality(normalizedMetrics, configuration.getWeights());
-                // Keep best.
-                checkAndSetBestQuality(bestClustering, clusteringTriple.getLeft(), normalizedQuality, clusteringTriple.getMiddle(), clusteringTriple.getRight(), normalizedMetrics);
+        var clustering = previousClustering.getClustering();
+        var nbObjectives = evaluator.getObjectiveCount();
+        var weights = getObjectiveWeights();
+        var chunkSize = configuration.getMergerChunkSize().orElse(0);
+
+        var normalize = configuration.isNormalizeMetrics() && possibleMergers.size() > 1;
+        var min = new double[nbObjectives];
+        var max = new double[nbObjectives];
+        var metricValues = new double[possibleMergers.size() * nbObjectives];
+        var qualities = new double[possibleMergers.size()];
+        if (!normalize && configuration.isBoundedMergeEvaluation() && Arrays.stream(weights).allMatch(w -> w >= 0)) {
+            evaluateMergersBounded(possibleMergers, clustering, weights, metricValues, qualities);
+        } else {
+            // First pass, calculate the metrics of every merger
+            pool.forEach(possibleMergers.size(), chunkSize, merger -> {
+                var pair = possibleMergers.get(merger);
+                evaluator.evaluateForMerge(clustering, pair.getKey(), pair.getValue(), metricValues,
+                        merger * nbObjectives);
             });
+
+            // Second pass, determine the (normalized) weighted quality of every merger
+            if (normalize) {
+                determineMinMaxValues(metricValues, min, max);
+            }
+            pool.forEach(possibleMergers.size(), chunkSize, merger ->
+                    qualities[merger] = getWeightedQuality(metricValues, merger * nbObjectives, weights,
+                            normalize ? min : null, max));
+        }
+        // As we negate maximization functions, the best quality is represented by the lowest number. On equal quality,
+        // the first merger is selected such that the selection does not depend on the order of parallel execution.
+        var best = pool.invoke(() -> IntStream.range(0, possibleMergers.size()).parallel()
+                .reduce((a, b) -> {
+                    var comparison = Double.compare(qualities[a], qualities[b]);
+                    return comparison < 0 || (comparison == 0 && a < b) ? a : b;
+                }))
+                .orElseThrow(() -> new IllegalStateException("No possible mergers to select the best merger from"));
+        var bestQuality = qualities[best];
+
+        // Only construct the metrics of the best merger
+        var bestMetrics = Arrays.copyOfRange(metricValues, best * nbObjectives, (best + 1) * nbObjectives);
+        var totalQuality = QualityCalculator.getWeightedTotalQuality(bestMetrics, weights);
+        Map<MetricType, double[]> normalizedMetrics = Collections.emptyMap();
+        if (normalize) {
+            var normalized = bestMetrics.clone();
+            normalize(normalized, min, max);
+            normalizedMetrics = evaluator.byMetricType(normalized);
         }
+        var merger = new MergeCandidate(possibleMergers.get(best), bestQuality, totalQuality,
+                evaluator.byMetricType(bestMetrics), normalizedMetrics);
+        return createClustering(clustering, merger);
+    }
 
-        return bestClustering.get();
+    /**
+     * Evaluates the given possible mergers while abandoning the mergers that can not improve on the best merger
+     * evaluated so far. The quality of abandoned mergers is set to {@link Double#POSITIVE_INFINITY}.
+     *
+     * @param possibleMergers the possible pairs of microservices to merge
+     * @param clustering      the current clustering
+     * @param weights         the weight of every objective
+     * @param metricValues    the array to store the metric values of every merger in
+     * @param qualities       the array to store the weighted quality of every merger in
+     * @see MetricEvaluator#evaluateForMergeBounded
+     */
+    private void evaluateMergersBounded(List<Pair<Integer, Integer>> possibleMergers, Clustering clustering,
+                                        double[] weights, double[] metricValues, double[] qualities) {
+        var nbObjectives = evaluator.getObjectiveCount();
+        var bestQuality = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+        pool.forEach(possibleMergers.size(), configuration.getMergerChunkSize().orElse(0), merger -> {
+            var pair = possibleMergers.get(merger);
+            var offset = merger * nbObjectives;
+            if (evaluator.evaluateForMergeBounded(clustering, pair.getKey(), pair.getValue(), weights,
+                    bestQuality.get(), metricValues, offset)) {
+                qualities[merger] = getWeightedQuality(metricValues, offset, weights, null, null);
+                bestQuality.accumulate(qualities[merger]);
+            } else {
+                qualities[merger] = Double.POSITIVE_INFINITY;
+            }
+        });
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Abandoned {} out of {} mergers early", Arrays.stream(qualities)
+                    .filter(quality -> quality == Double.POSITIVE_INFINITY)
+                    .count(), possibleMergers.size());
+        }
     }
 
     /**
-     * Synchronously checks whether the given clustering is the best clustering seen in this iteration. If so,
-     * we keep it. This also creates the solution structure for persistence.
-     * <p>
-     * {@code assessedQuality} should be the normalized quality when normalization is present.
+     * Returns the configured weight of every objective of the evaluator. The weights are configured in the order of
+     * the metric types as used by {@link QualityCalculator#getWeightedTotalQuality(Map, List)}.
      *
-     * @param currentBest     the currently known best clustering
-     * @param clustering      the clustering to assess
-     * @param assessedQuality the clustering's assessed quality.
-     * @param totalQuality    the non-normalized quality.
-     * @param metrics         the clustering's metrics to persist in the solution
+     * @return the weight of every objective
      */
-    private synchronized void checkAndSetBestQuality(AtomicReference<AHCAClustering> currentBest,
-                                                     Clustering clustering,
-                                                     double assessedQuality,
-                                                     double totalQuality,
-                                                     Map<MetricType, double[]> metrics,
-                                                     Map<MetricType, double[]> normalized) {
-        // As we negate maximization functions, the best quality is represented by the lowest number. Hence, lesser than.
-        if (currentBest.get() == null || assessedQuality < currentBest.get().getAssessedQuality()) {
-            var solution = new Solution();
-            solution.setMetricValues(metrics);
-            solution.setNormalizedMetricValues(normalized);
-            solution.setMicroservices(clustering.getByCluster().entrySet().stream()
-                    .map(cluster -> new Microservice(cluster.getKey(), cluster.getValue()))
-                    .collect(Collectors.toList()));
-            currentBest.set(new AHCAClustering(clustering, solution, assessedQuality, totalQuality));
+    private double[] getObjectiveWeights() {
+        var weights = new double[evaluator.getObjectiveCount()];
+        var weightIndex = 0;
+        for (var metricType : MetricType.values()) {
+            var typeIndex = evaluator.getMetricTypes().indexOf(metricType);
+            if (typeIndex < 0) {
+                continue;
+            }
+            for (var i = 0; i < evaluator.getMetricCount(typeIndex); i++) {
+                weights[evaluator.getObjectiveOffset(typeIndex) + i] = configuration.getWeights().get(weightIndex++);
+            }
         }
+        return weights;
+    }
+
+    /**
+     * Returns the weighted quality of the metric values of one merger stored at the given offset.
+     *
+     * @param metricValues the metric values of all mergers
+     * @param offset       the position of the first metric value of the merger
+     * @param weights      the weight of every objective
+     * @param min          the minimum value of every objective or {@code null} when not normalizing
+     * @param max          the maximum value of every objective or {@code null} when not normalizing
+     * @return the (normalized) weighted quality of the merger
+     */
+    private double getWeightedQuality(double[] metricValues, int offset, double[] weights, @Nullable double[] min,
+                                      @Nullable double[] max) {
+        var quality = 0.0;
+        var totalWeight = 0.0;
+        for (var objective = 0; objective < weights.length; objective++) {
+            var metric = metricValues[offset + objective];
+            if (min != null) {
+                metric = QualityCalculator.normalize(metric, min[objective], max[objective]);
+            }
+            quality += metric * weights[objective];
+            totalWeight += weights[objective];
+        }
+        return quality / totalWeight;
+    }
+
+    private void determineMinMaxValues(double[] metricValues, double[] min, double[] max) {
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (var i = 0; i < metricValues.length; i++) {
+            var objective = i % min.length;
+            min[objective] = Math.min(min[objective], metricValues[i]);
+            max[objective] = Math.max(max[objective], metricValues[i]);
+        }
+    }
+
+    private void normalize(double[] metrics, double[] min, double[] max) {
+        for (var objective = 0; objective < metrics.length; objective++) {
+            metrics[objective] = QualityCalculator.normalize(metrics[objective], min[objective], max[objective]);
+        }
+    }
+
+    /**
+     * Constructs the clustering for the given merger of the given clustering. This also creates the solution
+     * structure for persistence.
+     *
+     * @param clustering the clustering to merge two clusters of
+     * @param merger     the merger to perform
+     * @return the merged clustering
+     */
+    private AHCAClustering createClustering(Clustering clustering, MergeCandidate merger) {
+        var merged = clustering.merge(merger.getPair().getKey(), merger.getPair().getValue());
+        var solution = new Solution();
+        solution.setMetricValues(merger.getMetrics());
+        solution.setNormalizedMetricValues(merger.getNormalizedMetrics());
+        solution.setMicroservices(merged.getByCluster().entrySet().stream()
+                .map(cluster -> new Microservice(cluster.getKey(), cluster.getValue()))
+                .collect(Collectors.toList()));
+        return new AHCAClustering(merged, solution, merger.getAssessedQuality(), merger.getTotalQuality());
     }
 
     /**
@@ -248,14 +651,14 @@ public class AHCASolver implements Solver {
      * @see AHCAInitializer
      */
     public List<Pair<Integer, Integer>> getPossibleMergersWithSharedEdge(Clustering currentClustering) {
-        return currentClustering.getByCluster().entrySet().parallelStream()
+        return pool.invoke(() -> currentClustering.getByCluster().entrySet().parallelStream()
                 .flatMap(entry -> entry.getValue().stream()
                         .flatMap(clazz -> classConnections.get(clazz).stream())
                         .map(connectedClass -> currentClustering.getByClass().get(connectedClass))
                         .filter(ms -> !entry.getKey().equals(ms))
                         .map(ms -> entry.getKey() < ms ? Pair.of(entry.getKey(), ms) : Pair.of(ms, entry.getKey())))
                 .distinct()
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
 
     /**
@@ -270,7 +673,7 @@ public class AHCASolver implements Solver {
      */
     public List<Pair<Integer, Integer>> getAllPossibleMergers(Clustering currentClustering) {
         List<int[]> combinations = new ArrayList<>();
-        helper(combinations, new int[2], 0, currentClustering.getByCluster().size() - 1, 0);
+        helper(combinations, new int[2], 0, currentClustering.getClusterCount() - 1, 0);
 
         return combinations.stream()
                 .map(combination -> Pair.of(combination[0], combination[1]))
@@ -295,7 +698,7 @@ public class AHCASolver implements Solver {
                     String.format("Normalized quality: %.5f. Total quality: %.5f", best.getAssessedQuality(), best.getTotalQuality()) :
                     String.format("Quality: %.5f", best.getAssessedQuality());
             LOGGER.info("Step: {}/{}. Microservices: {}. {}. From possible mergers: {}. Duration: {} (m:s.millis)",
-                    counter, targetStep, best.getClustering().getByCluster().size(), qualityLog, possiblePairs, duration);
+                    counter, targetStep, best.getClustering().getClusterCount(), qualityLog, possiblePairs, duration);
         }
     }
 }
@@ -0,0 +1,21 @@
+package me.soels.tocairn.solver.ahca;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import me.soels.tocairn.solver.metric.MetricType;
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.Map;
+
+/**
+ * A possible merger of two microservices assessed in an AHCA step.
+ */
+@Getter
+@AllArgsConstructor
+public class MergeCandidate {
+    private final Pair<Integer, Integer> pair;
+    private final double assessedQuality;
+    private final double totalQuality;
+    private final Map<MetricType, double[]> metrics;
+    private final Map<MetricType, double[]> normalizedMetrics;
+}
@@ -0,0 +1,27 @@
+package me.soels.tocairn.solver.ahca;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A possible merger of two microservices kept in the priority queue of the lazy AHCA.
+ * <p>
+ * As the numbering of microservices changes between steps, the microservices are identified by their first class
+ * together with their version at the time of evaluation. The candidate holds the numbering of the microservices in the
+ * clustering of the given step.
+ * <p>
+ * The mergers are ordered by their quality change, i.e. the quality of the merged clustering relative to the quality
+ * of the clustering of the step at which they were evaluated. Unlike the quality itself, this change remains a
+ * meaningful estimate in later steps as the merger of other microservices hardly affects it.
+ */
+@Getter
+@AllArgsConstructor
+class QueuedMerger {
+    private final int first;
+    private final int firstVersion;
+    private final int second;
+    private final int secondVersion;
+    private final int step;
+    private final double qualityChange;
+    private final MergeCandidate candidate;
+}
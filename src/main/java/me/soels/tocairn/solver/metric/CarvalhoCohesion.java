@@ -1,10 +1,6 @@
 package me.soels.tocairn.solver.metric;
 
-import me.soels.tocairn.model.AbstractClass;
 import me.soels.tocairn.solver.Clustering;
-import org.apache.commons.lang3.tuple.Pair;
-
-import java.util.Set;
 
 /**
  * Cohesion as measured by Carvalho et al. (2020) based off of metrics in the work of Chidamber and Kemerer (1994).
@@ -30,30 +26,80 @@ import java.util.Set;
 public class CarvalhoCohesion implements Metric {
     @Override
     public double calculate(Clustering clustering) {
-        var clusteringByCluster = clustering.getByCluster();
-
-        return -1 * clusteringByCluster.values().stream()
-                // Construct a pair of the cluster's size and the amount of connections within the cluster
-                .map(cluster -> Pair.of((double) cluster.size(), countInnerRelations(cluster)))
-                // Apply Carvalho's formula to calculate the cohesion of the cluster
-                .mapToDouble(this::calculateForCluster)
-                .sum();
+        return calculate(EdgeCut.of(clustering));
+    }
+
+    /**
+     * Calculates the cohesion of the clustering described by the given cut.
+     *
+     * @param cut the cut of the clustering
+     * @return the negated cohesion of the clustering
+     */
+    public double calculate(EdgeCut cut) {
+        var cohesion = 0.0;
+        for (var cluster = 0; cluster < cut.getClusterCount(); cluster++) {
+            // Apply Carvalho's formula to calculate the cohesion of the cluster based on the cluster's size and the
+            // amount of connections within the cluster
+            cohesion += calculateForCluster(cut.getSize(cluster), cut.getInnerRelations(cluster));
+        }
+        return -1 * cohesion;
+    }
+
+    @Override
+    public double calculateForMerge(Clustering clustering, int source, int target) {
+        var cut = EdgeCut.of(clustering);
+        var contributions = clustering.getContributions(CarvalhoCohesion.class, current -> calculateContributions(cut));
+
+        // Only the merged clusters change, of which the inner relations are extended with the relations between them
+        var innerRelations = contributions.innerRelations[source] + contributions.innerRelations[target] +
+                countRelations(clustering, source, target) + countRelations(clustering, target, source);
+        var size = clustering.getMembers(source).length + clustering.getMembers(target).length;
+        var cohesion = contributions.cohesion - contributions.clusterCohesion[source] -
+                contributions.clusterCohesion[target] + calculateForCluster(size, innerRelations);
+        return -1 * cohesion;
     }
 
-    private double calculateForCluster(Pair<Double, Double> pair) {
-        if (pair.getKey() <= 1.0) {
+    private Contributions calculateContributions(EdgeCut cut) {
+        var contributions = new Contributions(cut.getClusterCount());
+        for (var cluster = 0; cluster < cut.getClusterCount(); cluster++) {
+            contributions.innerRelations[cluster] = cut.getInnerRelations(cluster);
+            contributions.clusterCohesion[cluster] = calculateForCluster(cut.getSize(cluster),
+                    contributions.innerRelations[cluster]);
+            contributions.cohesion += contributions.clusterCohesion[cluster];
+        }
+        return contributions;
+    }
+
+    private double calculateForCluster(double size, double innerRelations) {
+        if (size <= 1.0) {
             // There is only one node in the cluster. This is an 'optimal clustering' in terms of cohesion.
             return 0.25;
         }
-        return pair.getValue() / (pair.getKey() * (pair.getKey() - 1)) / 2;
+        return innerRelations / (size * (size - 1)) / 2;
     }
 
-    private double countInnerRelations(Set<? extends AbstractClass> classes) {
+    private int countRelations(Clustering clustering, int from, int to) {
         // We do not use the frequency of the dependency here as Carvalho et al. also made this binary.
-        return classes.stream()
-                .flatMap(clazz -> clazz.getDependenceRelationships().stream()
-                        .map(relationShip -> Pair.of(clazz, relationShip)))
-                .filter(pair -> classes.contains(pair.getValue().getCallee()))
-                .count();
+        var graph = clustering.getGraph();
+        var count = 0;
+        for (var clazz : clustering.getMembers(from)) {
+            for (var dep = graph.dependencyStart(clazz); dep < graph.dependencyEnd(clazz); dep++) {
+                if (clustering.getClusterOf(graph.getTarget(dep)) == to) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static final class Contributions {
+        private final int[] innerRelations;
+        private final double[] clusterCohesion;
+        private double cohesion;
+
+        private Contributions(int clusterCount) {
+            this.innerRelations = new int[clusterCount];
+            this.clusterCohesion = new double[clusterCount];
+        }
     }
 }
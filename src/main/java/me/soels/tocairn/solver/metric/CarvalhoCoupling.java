@@ -1,11 +1,7 @@
 package me.soels.tocairn.solver.metric;
 
-import me.soels.tocairn.model.AbstractClass;
-import me.soels.tocairn.model.DependenceRelationship;
 import me.soels.tocairn.solver.Clustering;
 
-import java.util.Set;
-
 /**
  * Coupling as measured by Carvalho et al. (2020) based off of metrics in the work of Chidamber and Kemerer (1994).
  * <p>
@@ -23,18 +19,71 @@ import java.util.Set;
 public class CarvalhoCoupling implements Metric {
     @Override
     public double calculate(Clustering clustering) {
-        return clustering.getByCluster().values().stream()
-                .mapToDouble(this::calculateCoupling)
-                .sum();
+        return calculate(EdgeCut.of(clustering));
+    }
+
+    /**
+     * Calculates the coupling of the clustering described by the given cut.
+     *
+     * @param cut the cut of the clustering
+     * @return the coupling of the clustering
+     */
+    public double calculate(EdgeCut cut) {
+        var coupling = 0.0;
+        for (var cluster = 0; cluster < cut.getClusterCount(); cluster++) {
+            coupling += cut.getCoupling(cluster);
+        }
+        return coupling;
+    }
+
+    @Override
+    public double calculateForMerge(Clustering clustering, int source, int target) {
+        var cut = EdgeCut.of(clustering);
+        var contributions = clustering.getContributions(CarvalhoCoupling.class, current -> calculateContributions(cut));
+
+        // The calls between the merged clusters are no longer external to the merged cluster
+        var merged = contributions.clusterCoupling[source] + contributions.clusterCoupling[target] -
+                calculateCalls(clustering, source, target) - calculateCalls(clustering, target, source);
+        return contributions.coupling - contributions.clusterCoupling[source] -
+                contributions.clusterCoupling[target] + merged;
     }
 
-    private double calculateCoupling(Set<? extends AbstractClass> microservice) {
-        return microservice.stream()
-                .flatMap(clazz -> clazz.getDependenceRelationships().stream()
-                        // Only include relationships to other clusters
-                        .filter(relationship -> !microservice.contains(relationship.getCallee())))
-                // This metric uses the frequency of calls to other units
-                .mapToDouble(DependenceRelationship::getStaticFrequency)
-                .sum();
+    @Override
+    public double lowerBoundForMerge(Clustering clustering, int source, int target) {
+        // The merged cluster can at best have no external calls left
+        var cut = EdgeCut.of(clustering);
+        var contributions = clustering.getContributions(CarvalhoCoupling.class, current -> calculateContributions(cut));
+        return contributions.coupling - contributions.clusterCoupling[source] - contributions.clusterCoupling[target];
+    }
+
+    private Contributions calculateContributions(EdgeCut cut) {
+        var contributions = new Contributions(cut.getClusterCount());
+        for (var cluster = 0; cluster < cut.getClusterCount(); cluster++) {
+            contributions.clusterCoupling[cluster] = cut.getCoupling(cluster);
+            contributions.coupling += contributions.clusterCoupling[cluster];
+        }
+        return contributions;
+    }
+
+    private double calculateCalls(Clustering clustering, int from, int to) {
+        var graph = clustering.getGraph();
+        var calls = 0.0;
+        for (var clazz : clustering.getMembers(from)) {
+            for (var dep = graph.dependencyStart(clazz); dep < graph.dependencyEnd(clazz); dep++) {
+                if (clustering.getClusterOf(graph.getTarget(dep)) == to) {
+                    calls += graph.getStaticFrequency(dep);
+                }
+            }
+        }
+        return calls;
+    }
+
+    private static final class Contributions {
+        private final double[] clusterCoupling;
+        private double coupling;
+
+        private Contributions(int clusterCount) {
+            this.clusterCoupling = new double[clusterCount];
+        }
     }
 }
@@ -1,11 +1,6 @@
 package me.soels.tocairn.solver.metric;
 
-import me.soels.tocairn.model.OtherClass;
 import me.soels.tocairn.solver.Clustering;
-import org.apache.commons.lang3.tuple.Pair;
-
-import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Feature modularization measurement by Carvalho et al. (2020).
@@ -25,52 +20,147 @@ import java.util.stream.Collectors;
 public class CarvalhoFeatureModularization implements Metric {
     @Override
     public double calculate(Clustering clustering) {
-        var featureModularizationMicroservice = clustering.getByCluster().entrySet().stream()
-                .map(entry -> Pair.of(entry.getKey(), featureModularization(entry.getValue())))
-                .collect(Collectors.toMap(Pair::getKey, Pair::getValue));
-
-        var uniquekeys = featureModularizationMicroservice.values().stream()
-                .map(Pair::getKey)
-                .filter(Objects::nonNull)
-                .distinct()
-                .collect(Collectors.toList());
-
-        return -1 * clustering.getByCluster().keySet().stream()
-                .mapToDouble(microserviceId ->
-                        featureModularizationMicroservice.get(microserviceId).getValue() +
-                                uniquekeys.size() / (double) clustering.getByCluster().size())
-                .sum();
+        return calculate(FeatureHistogram.of(clustering));
     }
 
     /**
-     * Measures the feature modularization for a microservice.
-     * <p>
-     * Returns both the feature modularization value as per {@code f(MSc)} by Carvalho et al. as well as returning the
-     * label of the predominant feature to be used in determining {@code FMSA} devised by Carvalho et al.
+     * Calculates the feature modularization of the clustering described by the given histograms.
      *
-     * @param microservice the classes identifying the suggested microservice boundary
-     * @return the feature modularization and predominant feature for this microservice
+     * @param histogram the feature histograms of the clustering
+     * @return the negated feature modularization of the clustering
      */
-    private Pair<String, Double> featureModularization(Set<OtherClass> microservice) {
-        var msaFeatureSet = getFeatureSet(microservice);
+    public double calculate(FeatureHistogram histogram) {
+        var predominantFeatures = new boolean[histogram.getFeatureCount()];
+        var nbPredominantFeatures = 0;
+        var featureModularization = 0.0;
+        for (var cluster = 0; cluster < histogram.getClusterCount(); cluster++) {
+            var predominantFeature = predominantFeature(histogram, cluster);
+            if (predominantFeature >= 0) {
+                if (!predominantFeatures[predominantFeature]) {
+                    predominantFeatures[predominantFeature] = true;
+                    nbPredominantFeatures++;
+                }
+                featureModularization += histogram.getCount(cluster, predominantFeature) /
+                        (double) histogram.getTotal(cluster);
+            }
+        }
+
+        // Every microservice adds the amount of unique predominant features divided by the amount of microservices.
+        return -1 * (featureModularization + nbPredominantFeatures);
+    }
+
+    @Override
+    public double calculateForMerge(Clustering clustering, int source, int target) {
+        var histogram = FeatureHistogram.of(clustering);
+        var contributions = clustering.getContributions(CarvalhoFeatureModularization.class,
+                current -> new Contributions(histogram));
 
-        var predominantFeature = msaFeatureSet.entrySet().stream()
-                .max(Comparator.comparingInt(Map.Entry::getValue))
-                .map(entry -> Pair.of(entry.getKey(), entry.getValue()));
+        // The feature set of the merged microservice is the sum of the feature sets of both microservices
+        var mergedFeature = -1;
+        var mergedCount = 0;
+        for (var feature = 0; feature < histogram.getFeatureCount(); feature++) {
+            var count = histogram.getCount(source, feature) + histogram.getCount(target, feature);
+            if (count > mergedCount) {
+                mergedFeature = feature;
+                mergedCount = count;
+            }
+        }
 
-        if (predominantFeature.isEmpty()) {
-            return null;
+        // Replace the predominant features of both microservices with that of the merged microservice
+        var featureModularization = contributions.featureModularization - contributions.values[source] -
+                contributions.values[target];
+        var nbPredominantFeatures = contributions.nbPredominantFeatures -
+                removedPredominantFeatures(contributions, source, target);
+        if (mergedFeature >= 0) {
+            featureModularization += mergedCount / (double) (histogram.getTotal(source) + histogram.getTotal(target));
+            if (remainingPredominantCount(contributions, mergedFeature, source, target) == 0) {
+                nbPredominantFeatures++;
+            }
         }
+        return -1 * (featureModularization + nbPredominantFeatures);
+    }
 
-        return Pair.of(predominantFeature.get().getKey(), predominantFeature.get().getValue() /
-                (double) msaFeatureSet.values().stream().mapToInt(value -> value).sum());
+    @Override
+    public double lowerBoundForMerge(Clustering clustering, int source, int target) {
+        // At best, all classes of the merged microservice implement its predominant feature which is a new one
+        var histogram = FeatureHistogram.of(clustering);
+        var contributions = clustering.getContributions(CarvalhoFeatureModularization.class,
+                current -> new Contributions(histogram));
+        var featureModularization = contributions.featureModularization - contributions.values[source] -
+                contributions.values[target] + 1;
+        var nbPredominantFeatures = contributions.nbPredominantFeatures -
+                removedPredominantFeatures(contributions, source, target) + 1;
+        return -1 * (featureModularization + nbPredominantFeatures);
     }
 
-    private Map<String, Integer> getFeatureSet(Set<OtherClass> microservice) {
-        var result = new HashMap<String, Integer>();
-        microservice.stream()
-                .flatMap(clazz -> clazz.getFeatures().stream())
-                .forEach(feature -> result.compute(feature, (f, counter) -> counter == null ? 1 : counter + 1));
-        return result;
+    private int removedPredominantFeatures(Contributions contributions, int source, int target) {
+        var sourceFeature = contributions.predominantFeatures[source];
+        var targetFeature = contributions.predominantFeatures[target];
+        var removed = 0;
+        if (sourceFeature >= 0 && remainingPredominantCount(contributions, sourceFeature, source, target) == 0) {
+            removed++;
+        }
+        if (targetFeature >= 0 && targetFeature != sourceFeature &&
+                remainingPredominantCount(contributions, targetFeature, source, target) == 0) {
+            removed++;
+        }
+        return removed;
+    }
+
+    private int remainingPredominantCount(Contributions contributions, int feature, int source, int target) {
+        var count = contributions.predominantCounts[feature];
+        if (contributions.predominantFeatures[source] == feature) {
+            count--;
+        }
+        if (contributions.predominantFeatures[target] == feature) {
+            count--;
+        }
+        return count;
+    }
+
+    /**
+     * Determines the predominant feature of a microservice to be used in determining {@code FMSA} devised by Carvalho
+     * et al. When multiple features are predominant, the lexicographically first feature is chosen.
+     *
+     * @param histogram the feature histograms of the clustering
+     * @param cluster   the microservice to determine the predominant feature for
+     * @return the index of the predominant feature or {@code -1} when the microservice does not implement any features
+     */
+    private static int predominantFeature(FeatureHistogram histogram, int cluster) {
+        var predominantFeature = -1;
+        var predominantCount = 0;
+        for (var feature = 0; feature < histogram.getFeatureCount(); feature++) {
+            if (histogram.getCount(cluster, feature) > predominantCount) {
+                predominantFeature = feature;
+                predominantCount = histogram.getCount(cluster, feature);
+            }
+        }
+        return predominantFeature;
+    }
+
+    private static final class Contributions {
+        private final int[] predominantFeatures;
+        private final double[] values;
+        private final int[] predominantCounts;
+        private int nbPredominantFeatures;
+        private double featureModularization;
+
+        private Contributions(FeatureHistogram histogram) {
+            this.predominantFeatures = new int[histogram.getClusterCount()];
+            this.values = new double[histogram.getClusterCount()];
+            this.predominantCounts = new int[histogram.getFeatureCount()];
+            for (var cluster = 0; cluster < histogram.getClusterCount(); cluster++) {
+                // Measure f(MSc) by Carvalho et al. for this microservice
+                var feature = predominantFeature(histogram, cluster);
+                predominantFeatures[cluster] = feature;
+                if (feature >= 0) {
+                    values[cluster] = histogram.getCount(cluster, feature) / (double) histogram.getTotal(cluster);
+                    featureModularization += values[cluster];
+                    if (predominantCounts[feature]++ == 0) {
+                        nbPredominantFeatures++;
+                    }
+                }
+            }
+        }
     }
 }
@@ -1,14 +1,6 @@
 package me.soels.tocairn.solver.metric;
 
-import me.soels.tocairn.model.AbstractClass;
-import me.soels.tocairn.model.OtherClass;
 import me.soels.tocairn.solver.Clustering;
-import org.apache.commons.lang3.tuple.Pair;
-
-import java.util.Set;
-import java.util.stream.Collectors;
-
-import static me.soels.tocairn.util.Constants.PRIMITIVE_STRING;
 
 /**
  * Overhead measurement by Carvalho et al. (2020).
@@ -26,81 +18,68 @@ import static me.soels.tocairn.util.Constants.PRIMITIVE_STRING;
 public class CarvalhoOverhead implements Metric {
     @Override
     public double calculate(Clustering clustering) {
-        var averageSize = clustering.getByClass().keySet().stream()
-                .mapToLong(AbstractClass::getSize)
-                .average()
-                .orElseThrow(() -> new IllegalArgumentException("Could not calculate average size of classes"));
-
-        return clustering.getByCluster().values().stream()
-                .mapToDouble(microservice -> overhead(microservice, clustering.getByClass().keySet(), averageSize))
-                .sum();
+        return calculate(clustering, EdgeCut.of(clustering));
     }
 
     /**
-     * Measures the total overhead introduced by the microservice
+     * Calculates the overhead of the clustering described by the given cut.
      *
-     * @param microservice the classes identifying the suggested microservice boundary
-     * @param allClasses   all the classes containing size definitions
-     * @param averageSize  the average measured size of the classes in the application
-     * @return the total overhead introduced by this microservice
+     * @param cut the cut of the clustering
+     * @return the overhead of the clustering
      */
-    private double overhead(Set<OtherClass> microservice, Set<OtherClass> allClasses, double averageSize) {
-        // Get all the classes that do not belong to this microservice.
-        var externalClasses = allClasses.stream()
-                .filter(clazz -> !microservice.contains(clazz))
-                .collect(Collectors.toList());
-        // Get all the pairs of classes in this microservice with those of external classes.
-        var pairs = microservice.stream()
-                .flatMap(i -> externalClasses.stream()
-                        .map(j -> Pair.of(i, j)))
-                .collect(Collectors.toList());
-        return pairs.stream()
-                .mapToDouble(pair -> dt(pair.getKey(), pair.getValue(), allClasses, averageSize))
-                .sum();
+    public double calculate(EdgeCut cut) {
+        // Sum the data transferred over all dependencies crossing a microservice boundary
+        var overhead = 0.0;
+        for (var cluster = 0; cluster < cut.getClusterCount(); cluster++) {
+            overhead += cut.getTransferred(cluster);
+        }
+        return overhead;
     }
 
-    /**
-     * Measures the data transferred in method calls from class {@code i} to class {@code j}.
-     *
-     * @param i           the caller
-     * @param j           the callee
-     * @param allClasses  all the classes containing size definitions
-     * @param averageSize the average measured size of the classes in the application
-     * @return the data transferred from class i to class j
-     */
-    private double dt(OtherClass i, OtherClass j, Set<OtherClass> allClasses, double averageSize) {
-        var maybeDep = i.getDependenceRelationships().stream()
-                .filter(dep -> dep.getCallee().equals(j))
-                .findFirst();
-        if (maybeDep.isEmpty()) {
-            // No relationship, therefore no data is shared.
-            return 0;
+    private double calculate(Clustering clustering, EdgeCut cut) {
+        if (!clustering.getOptimizationData().getDataTransferIndex().isMeasurable()) {
+            throw new IllegalArgumentException("Could not calculate average size of classes");
         }
+        return calculate(cut);
+    }
+
+    @Override
+    public double calculateForMerge(Clustering clustering, int source, int target) {
+        var cut = EdgeCut.of(clustering);
+        var overhead = clustering.getContributions(CarvalhoOverhead.class, current -> calculate(current, cut));
 
-        // Increase sum based size of classes shared in this dependency times how often they are shared
-        return maybeDep.get().getSharedClasses().entrySet().stream()
-                .mapToDouble(classShared -> sizeOf(classShared.getKey(), allClasses, averageSize) * classShared.getValue())
-                .sum();
+        // The data transferred between the merged clusters is no longer overhead
+        return overhead - dataTransferred(clustering, source, target) - dataTransferred(clustering, target, source);
+    }
+
+    @Override
+    public double lowerBoundForMerge(Clustering clustering, int source, int target) {
+        // At best, all data transferred from the merged clusters was transferred between them
+        var cut = EdgeCut.of(clustering);
+        var overhead = clustering.getContributions(CarvalhoOverhead.class, current -> calculate(current, cut));
+        return overhead - cut.getTransferred(source) - cut.getTransferred(target);
     }
 
     /**
-     * Measures the size of the class shared in this dependency.
+     * Measures the data transferred from the classes in the {@code from} microservice to those in the {@code to}
+     * microservice.
      *
-     * @param classShared the class shared for which to determine the size of
-     * @param allClasses  all the classes containing size definitions
-     * @param averageSize the average measured size of the classes in the application
-     * @return the size of the method call
+     * @param clustering the clustering containing the microservices
+     * @param from       the cluster identifying the calling microservice
+     * @param to         the cluster identifying the called microservice
+     * @return the data transferred between the microservices
      */
-    private double sizeOf(String classShared, Set<OtherClass> allClasses, double averageSize) {
-        if (classShared.equals(PRIMITIVE_STRING)) {
-            return 4; // Most primitives are allocated with 32 bits = 8 bytes.
-        } else {
-            return allClasses.stream()
-                    .filter(clazz -> clazz.getIdentifier().equals(classShared))
-                    .findFirst()
-                    .map(AbstractClass::getSize)
-                    .map(Double::valueOf)
-                    .orElse(averageSize);
+    private double dataTransferred(Clustering clustering, int from, int to) {
+        var graph = clustering.getGraph();
+        var index = clustering.getOptimizationData().getDataTransferIndex();
+        var transferred = 0.0;
+        for (var i : clustering.getMembers(from)) {
+            for (var dep = graph.dependencyStart(i); dep < graph.dependencyEnd(i); dep++) {
+                if (clustering.getClusterOf(graph.getTarget(dep)) == to) {
+                    transferred += index.getTransferred(dep);
+                }
+            }
         }
+        return transferred;
     }
 }
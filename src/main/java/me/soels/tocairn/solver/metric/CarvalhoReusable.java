@@ -1,10 +1,7 @@
 package me.soels.tocairn.solver.metric;
 
-import me.soels.tocairn.model.OtherClass;
 import me.soels.tocairn.solver.Clustering;
 
-import java.util.Set;
-
 /**
  * Reusability measurement by Carvalho et al. (2020).
  * <p>
@@ -24,19 +21,82 @@ import java.util.Set;
 public class CarvalhoReusable implements Metric {
     @Override
     public double calculate(Clustering clustering) {
-        return -1 * clustering.getByCluster().entrySet().stream()
-                .mapToInt(entry -> r(entry.getKey(), entry.getValue(), clustering))
-                .sum() / (double) clustering.getByCluster().values().size();
+        var contributions = clustering.getContributions(CarvalhoReusable.class, this::calculateContributions);
+        return -1 * contributions.reused / (double) clustering.getClusterCount();
+    }
+
+    @Override
+    public double calculateForMerge(Clustering clustering, int source, int target) {
+        var contributions = clustering.getContributions(CarvalhoReusable.class, this::calculateContributions);
+
+        // The merged cluster is reused when either contains an executed API class or when a class outside of the
+        // merged cluster has a dynamically used dependency on it. Dependencies between the merged clusters no longer
+        // count.
+        var merged = 0;
+        if (contributions.executedAPI[source] || contributions.executedAPI[target] ||
+                contributions.incomingDynamic[source] - countDynamic(clustering, target, source) +
+                        contributions.incomingDynamic[target] - countDynamic(clustering, source, target) > 0) {
+            merged = 1;
+        }
+        var reused = contributions.reused - reused(contributions, source) - reused(contributions, target) + merged;
+        return -1 * reused / (double) (clustering.getClusterCount() - 1);
+    }
+
+    @Override
+    public double lowerBoundForMerge(Clustering clustering, int source, int target) {
+        // At best, the merged cluster is reused
+        var contributions = clustering.getContributions(CarvalhoReusable.class, this::calculateContributions);
+        var reused = contributions.reused - reused(contributions, source) - reused(contributions, target) + 1;
+        return -1 * reused / (double) (clustering.getClusterCount() - 1);
     }
 
-    private int r(Integer clusterNumber, Set<OtherClass> microservice, Clustering clustering) {
-        var mdu = microservice.stream().anyMatch(OtherClass::isExecutedAPIClass);
-        var sc = clustering.getByCluster().entrySet().stream()
-                .filter(cluster -> !cluster.getKey().equals(clusterNumber))
-                .flatMap(otherMicroservices -> otherMicroservices.getValue().stream())
-                .flatMap(outsideClasses -> outsideClasses.getDependenceRelationships().stream())
-                .filter(dep -> microservice.contains(dep.getCallee()))
-                .anyMatch(dep -> dep.getDynamicFrequency().orElse(0L) > 0);
-        return (sc || mdu) ? 1 : 0;
+    private Contributions calculateContributions(Clustering clustering) {
+        // Only the dynamically used dependencies are visited to determine whether other microservices use a cluster
+        var graph = clustering.getGraph();
+        var contributions = new Contributions(clustering.getClusterCount());
+        for (var clazz = 0; clazz < graph.size(); clazz++) {
+            var cluster = clustering.getClusterOf(clazz);
+            contributions.executedAPI[cluster] |= graph.isExecutedAPIClass(clazz);
+            var end = graph.dynamicIncomingEnd(clazz);
+            for (var incoming = graph.dynamicIncomingStart(clazz); incoming < end; incoming++) {
+                var dep = graph.getDynamicIncomingDependency(incoming);
+                if (clustering.getClusterOf(graph.getSource(dep)) != cluster) {
+                    contributions.incomingDynamic[cluster]++;
+                }
+            }
+        }
+        for (var cluster = 0; cluster < clustering.getClusterCount(); cluster++) {
+            contributions.reused += reused(contributions, cluster);
+        }
+        return contributions;
+    }
+
+    private int reused(Contributions contributions, int cluster) {
+        return contributions.executedAPI[cluster] || contributions.incomingDynamic[cluster] > 0 ? 1 : 0;
+    }
+
+    private int countDynamic(Clustering clustering, int from, int to) {
+        var graph = clustering.getGraph();
+        var count = 0;
+        for (var clazz : clustering.getMembers(to)) {
+            var end = graph.dynamicIncomingEnd(clazz);
+            for (var incoming = graph.dynamicIncomingStart(clazz); incoming < end; incoming++) {
+                if (clustering.getClusterOf(graph.getSource(graph.getDynamicIncomingDependency(incoming))) == from) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static final class Contributions {
+        private final boolean[] executedAPI;
+        private final int[] incomingDynamic;
+        private int reused;
+
+        private Contributions(int clusterCount) {
+            this.executedAPI = new boolean[clusterCount];
+            this.incomingDynamic = new int[clusterCount];
+        }
     }
 }
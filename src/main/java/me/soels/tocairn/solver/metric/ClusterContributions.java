@@ -0,0 +1,50 @@
+package me.soels.tocairn.solver.metric;
+
+import me.soels.tocairn.solver.Clustering;
+
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * The value every microservice in a {@link Clustering} contributes to a metric that sums or averages these values.
+ * <p>
+ * This allows for assessing a merger of two microservices by only replacing their contributions with that of the
+ * merged microservice.
+ */
+final class ClusterContributions {
+    private final double[] values;
+    private final double total;
+
+    ClusterContributions(Clustering clustering, IntToDoubleFunction calculator) {
+        this.values = new double[clustering.getClusterCount()];
+        var sum = 0.0;
+        for (var cluster = 0; cluster < values.length; cluster++) {
+            values[cluster] = calculator.applyAsDouble(cluster);
+            sum += values[cluster];
+        }
+        this.total = sum;
+    }
+
+    /**
+     * Returns the summed contributions after merging the two given microservices.
+     *
+     * @param a      the first merged microservice
+     * @param b      the second merged microservice
+     * @param merged the contribution of the merged microservice
+     * @return the summed contributions of the merged clustering
+     */
+    double sumAfterMerge(int a, int b, double merged) {
+        return total - values[a] - values[b] + merged;
+    }
+
+    /**
+     * Returns the average contribution after merging the two given microservices.
+     *
+     * @param a      the first merged microservice
+     * @param b      the second merged microservice
+     * @param merged the contribution of the merged microservice
+     * @return the average contribution in the merged clustering
+     */
+    double averageAfterMerge(int a, int b, double merged) {
+        return sumAfterMerge(a, b, merged) / (values.length - 1);
+    }
+}
@@ -0,0 +1,150 @@
+package me.soels.tocairn.solver.metric;
+
+import me.soels.tocairn.solver.ClassGraph;
+import me.soels.tocairn.solver.Clustering;
+import me.soels.tocairn.solver.DataTransferIndex;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * The dependencies within and crossing the microservices of a clustering as used by {@link CarvalhoCohesion},
+ * {@link CarvalhoCoupling} and {@link CarvalhoOverhead}.
+ * <p>
+ * For every microservice, the cut holds the amount of dependencies between its classes and the static frequency of and
+ * data transferred over the dependencies from its classes to classes in other microservices. The amount of
+ * dependencies and their frequency are determined in a single pass over the dependencies of the graph. The data
+ * transferred is only determined in a second pass when it is first requested, such that the data transferred over the
+ * dependencies does not need to be determined when the overhead is not measured. As cuts retrieved through
+ * {@link #of(Clustering)} are shared, the cut can not be modified after construction.
+ */
+public final class EdgeCut {
+    private final ClassGraph graph;
+    private final Supplier<DataTransferIndex> transfers;
+    private final int[] labels;
+    private final int[] sizes;
+    private final int[] innerRelations;
+    private final long[] coupling;
+    private volatile double[] transferred;
+
+    /**
+     * Constructs the cut of the given graph for the given cluster of every class.
+     *
+     * @param graph        the graph to construct the cut for
+     * @param transfers    the supplier of the data transferred over the dependencies of the graph, only called when the
+     *                     data transferred is requested
+     * @param labels       the cluster of every class in the graph
+     * @param clusterCount the amount of clusters, all labels should be lower than this amount
+     */
+    public EdgeCut(ClassGraph graph, Supplier<DataTransferIndex> transfers, int[] labels, int clusterCount) {
+        if (labels.length != graph.size()) {
+            throw new IllegalArgumentException("Expected a label for all " + graph.size() + " classes, got " +
+                    labels.length);
+        }
+        this.graph = graph;
+        this.transfers = transfers;
+        this.labels = labels.clone();
+        this.sizes = new int[clusterCount];
+        this.innerRelations = new int[clusterCount];
+        this.coupling = new long[clusterCount];
+        for (var i = 0; i < graph.size(); i++) {
+            var cluster = this.labels[i];
+            sizes[cluster]++;
+            // Dependencies to classes outside of the graph are always to other clusters
+            coupling[cluster] += graph.getExternalStaticFrequency(i);
+            for (var dep = graph.dependencyStart(i); dep < graph.dependencyEnd(i); dep++) {
+                if (this.labels[graph.getTarget(dep)] == cluster) {
+                    innerRelations[cluster]++;
+                } else {
+                    coupling[cluster] += graph.getStaticFrequency(dep);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cut of the given clustering, calculating it once per clustering.
+     *
+     * @param clustering the clustering to retrieve the cut for
+     * @return the shared cut of the clustering
+     */
+    public static EdgeCut of(Clustering clustering) {
+        return clustering.getContributions(EdgeCut.class, current -> {
+            var labels = new int[current.getGraph().size()];
+            Arrays.setAll(labels, current::getClusterOf);
+            return new EdgeCut(current.getGraph(), current.getOptimizationData()::getDataTransferIndex, labels,
+                    current.getClusterCount());
+        });
+    }
+
+    private double[] getTransferred() {
+        var result = transferred;
+        if (result == null) {
+            synchronized (this) {
+                result = transferred;
+                if (result == null) {
+                    result = calculateTransferred();
+                    transferred = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private double[] calculateTransferred() {
+        var index = transfers.get();
+        var result = new double[sizes.length];
+        for (var i = 0; i < graph.size(); i++) {
+            var cluster = labels[i];
+            for (var dep = graph.dependencyStart(i); dep < graph.dependencyEnd(i); dep++) {
+                if (labels[graph.getTarget(dep)] != cluster) {
+                    result[cluster] += index.getTransferred(dep);
+                }
+            }
+        }
+        return result;
+    }
+
+    public int getClusterCount() {
+        return sizes.length;
+    }
+
+    public int getClusterOf(int clazz) {
+        return labels[clazz];
+    }
+
+    public int getSize(int cluster) {
+        return sizes[cluster];
+    }
+
+    /**
+     * Returns the amount of dependencies between classes in the given cluster.
+     *
+     * @param cluster the cluster to retrieve the amount of dependencies for
+     * @return the amount of inner dependencies
+     */
+    public int getInnerRelations(int cluster) {
+        return innerRelations[cluster];
+    }
+
+    /**
+     * Returns the static frequency of the dependencies from classes in the given cluster to classes outside of it.
+     *
+     * @param cluster the cluster to retrieve the coupling for
+     * @return the coupling of the cluster
+     */
+    public long getCoupling(int cluster) {
+        return coupling[cluster];
+    }
+
+    /**
+     * Returns the data transferred over the dependencies from classes in the given cluster to classes in other
+     * clusters.
+     *
+     * @param cluster the cluster to retrieve the data transferred for
+     * @return the data transferred from the cluster
+     */
+    public double getTransferred(int cluster) {
+        return getTransferred()[cluster];
+    }
+}
@@ -0,0 +1,87 @@
+package me.soels.tocairn.solver.metric;
+
+import me.soels.tocairn.solver.ClassGraph;
+import me.soels.tocairn.solver.Clustering;
+
+import java.util.Arrays;
+
+/**
+ * The amount of classes implementing every feature per microservice of a clustering as used by
+ * {@link CarvalhoFeatureModularization}.
+ * <p>
+ * The histograms are kept as one array of {@code clusters * features} counts using the feature indices of the
+ * {@link ClassGraph}. As histograms retrieved through {@link #of(Clustering)} are shared, these can not be modified
+ * after construction.
+ */
+public final class FeatureHistogram {
+    private final int featureCount;
+    private final int[] counts;
+    private final int[] totals;
+
+    /**
+     * Constructs the histograms of the given graph for the given cluster of every class.
+     *
+     * @param graph        the graph to construct the histograms for
+     * @param labels       the cluster of every class in the graph
+     * @param clusterCount the amount of clusters, all labels should be lower than this amount
+     */
+    public FeatureHistogram(ClassGraph graph, int[] labels, int clusterCount) {
+        if (labels.length != graph.size()) {
+            throw new IllegalArgumentException("Expected a label for all " + graph.size() + " classes, got " +
+                    labels.length);
+        }
+        this.featureCount = graph.getFeatureCount();
+        this.counts = new int[clusterCount * featureCount];
+        this.totals = new int[clusterCount];
+        for (var clazz = 0; clazz < graph.size(); clazz++) {
+            var offset = labels[clazz] * featureCount;
+            for (var position = graph.featureStart(clazz); position < graph.featureEnd(clazz); position++) {
+                counts[offset + graph.getClassFeature(position)]++;
+            }
+            totals[labels[clazz]] += graph.featureEnd(clazz) - graph.featureStart(clazz);
+        }
+    }
+
+    /**
+     * Returns the histograms of the given clustering, calculating them once per clustering.
+     *
+     * @param clustering the clustering to retrieve the histograms for
+     * @return the shared histograms of the clustering
+     */
+    public static FeatureHistogram of(Clustering clustering) {
+        return clustering.getContributions(FeatureHistogram.class, current -> {
+            var labels = new int[current.getGraph().size()];
+            Arrays.setAll(labels, current::getClusterOf);
+            return new FeatureHistogram(current.getGraph(), labels, current.getClusterCount());
+        });
+    }
+
+    public int getClusterCount() {
+        return totals.length;
+    }
+
+    public int getFeatureCount() {
+        return featureCount;
+    }
+
+    /**
+     * Returns the amount of classes in the given cluster implementing the given feature.
+     *
+     * @param cluster the cluster to count the classes in
+     * @param feature the index of the feature
+     * @return the amount of classes implementing the feature
+     */
+    public int getCount(int cluster, int feature) {
+        return counts[cluster * featureCount + feature];
+    }
+
+    /**
+     * Returns the summed amount of classes implementing a feature for all the features in the given cluster.
+     *
+     * @param cluster the cluster to count the classes in
+     * @return the summed amount of classes implementing a feature
+     */
+    public int getTotal(int cluster) {
+        return totals[cluster];
+    }
+}
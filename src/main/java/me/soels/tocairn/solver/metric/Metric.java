@@ -24,4 +24,38 @@ public interface Metric {
      * @return the resulting value for this metric
      */
     double calculate(Clustering clustering);
+
+    /**
+     * Calculate the metric value for the clustering resulting from merging the {@code source} cluster into the
+     * {@code target} cluster of the given clustering.
+     * <p>
+     * This should return the same value as {@link #calculate(Clustering)} on {@link Clustering#merge(int, int)}. The
+     * default implementation does exactly that. Metrics that consist of contributions per microservice should override
+     * this to only assess the merged microservice using the contributions cached in the given clustering through
+     * {@link Clustering#getContributions}.
+     *
+     * @param clustering the clustering to merge two clusters of
+     * @param source     the cluster to merge into the target cluster
+     * @param target     the cluster to merge the source cluster into
+     * @return the resulting value for this metric after merging
+     */
+    default double calculateForMerge(Clustering clustering, int source, int target) {
+        return calculate(clustering.merge(source, target));
+    }
+
+    /**
+     * Returns a lower bound of {@link #calculateForMerge(Clustering, int, int)} for the same merger.
+     * <p>
+     * The bound should be cheaper to determine than the metric itself and should never exceed the metric value after
+     * merging. It allows to abandon the evaluation of a merger that can not improve on the best merger seen so far
+     * before calculating this metric. The default implementation does not bound the metric.
+     *
+     * @param clustering the clustering to merge two clusters of
+     * @param source     the cluster to merge into the target cluster
+     * @param target     the cluster to merge the source cluster into
+     * @return the lower bound of the metric value after merging or {@link Double#NEGATIVE_INFINITY} when not bounded
+     */
+    default double lowerBoundForMerge(Clustering clustering, int source, int target) {
+        return Double.NEGATIVE_INFINITY;
+    }
 }
@@ -0,0 +1,231 @@
+package me.soels.tocairn.solver.metric;
+
+import me.soels.tocairn.solver.Clustering;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates all the metrics of the configured {@link MetricType metric types} on a clustering.
+ * <p>
+ * The metrics registered in the {@link MetricRegistry} at construction are evaluated in the order of the configured
+ * metric types, matching the order of the objectives in the solvers. The index of the first objective of every metric
+ * type is determined once such that objectives can be indexed directly. The metrics share the aggregates they
+ * calculate per microservice through {@link Clustering#getContributions}, such as the {@link EdgeCut},
+ * {@link FeatureHistogram} and the data and coupling contributions of the Selmadji metrics. This way, the clusters and
+ * dependencies of a clustering are only traversed once per aggregate regardless of how many metrics use them.
+ * <p>
+ * The evaluator is thread-safe as the metrics do not maintain state between evaluations.
+ */
+public final class MetricEvaluator {
+    private static final double BOUND_TOLERANCE = 1e-9;
+
+    private final List<MetricType> metricTypes;
+    private final Metric[][] metrics;
+    private final int[] objectiveOffsets;
+    private final int objectiveCount;
+
+    /**
+     * Constructs the evaluator for the given metric types.
+     *
+     * @param metricTypes the metric types to evaluate
+     */
+    public MetricEvaluator(List<MetricType> metricTypes) {
+        this.metricTypes = List.copyOf(metricTypes);
+        this.metrics = new Metric[metricTypes.size()][];
+        this.objectiveOffsets = new int[metricTypes.size()];
+        var count = 0;
+        for (var i = 0; i < metrics.length; i++) {
+            metrics[i] = metricTypes.get(i).getMetrics().toArray(Metric[]::new);
+            objectiveOffsets[i] = count;
+            count += metrics[i].length;
+        }
+        this.objectiveCount = count;
+    }
+
+    public List<MetricType> getMetricTypes() {
+        return metricTypes;
+    }
+
+    /**
+     * Returns the amount of metrics evaluated, i.e. the amount of objectives.
+     *
+     * @return the amount of metrics
+     */
+    public int getObjectiveCount() {
+        return objectiveCount;
+    }
+
+    /**
+     * Returns the index of the first objective of the metric type at the given position in the configured metric
+     * types.
+     *
+     * @param metricTypeIndex the position of the metric type
+     * @return the index of the objective of the first metric of the metric type
+     */
+    public int getObjectiveOffset(int metricTypeIndex) {
+        return objectiveOffsets[metricTypeIndex];
+    }
+
+    /**
+     * Returns the amount of metrics of the metric type at the given position in the configured metric types.
+     *
+     * @param metricTypeIndex the position of the metric type
+     * @return the amount of metrics of the metric type
+     */
+    public int getMetricCount(int metricTypeIndex) {
+        return metrics[metricTypeIndex].length;
+    }
+
+    /**
+     * Returns the metric of the given objective.
+     *
+     * @param metricTypeIndex the position of the metric type in the configured metric types
+     * @param metricIndex     the position of the metric within its metric type
+     * @return the metric
+     */
+    public Metric getMetric(int metricTypeIndex, int metricIndex) {
+        return metrics[metricTypeIndex][metricIndex];
+    }
+
+    /**
+     * Evaluates all the metrics on the given clustering.
+     *
+     * @param clustering the clustering to evaluate
+     * @return the metric values in the order of evaluation
+     */
+    public double[] evaluate(Clustering clustering) {
+        var result = new double[objectiveCount];
+        var objective = 0;
+        for (var typeMetrics : metrics) {
+            for (var metric : typeMetrics) {
+                result[objective++] = metric.calculate(clustering);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates all the metrics on the clustering resulting from merging the {@code source} cluster into the
+     * {@code target} cluster of the given clustering.
+     *
+     * @param clustering the clustering to merge two clusters of
+     * @param source     the cluster to merge into the target cluster
+     * @param target     the cluster to merge the source cluster into
+     * @return the metric values in the order of evaluation
+     * @see Metric#calculateForMerge(Clustering, int, int)
+     */
+    public double[] evaluateForMerge(Clustering clustering, int source, int target) {
+        var result = new double[objectiveCount];
+        evaluateForMerge(clustering, source, target, result, 0);
+        return result;
+    }
+
+    /**
+     * Evaluates all the metrics on the clustering resulting from merging the {@code source} cluster into the
+     * {@code target} cluster of the given clustering, writing the metric values into the given array.
+     *
+     * @param clustering the clustering to merge two clusters of
+     * @param source     the cluster to merge into the target cluster
+     * @param target     the cluster to merge the source cluster into
+     * @param result     the array to write the metric values to in the order of evaluation
+     * @param offset     the position in the array to write the first metric value to
+     */
+    public void evaluateForMerge(Clustering clustering, int source, int target, double[] result, int offset) {
+        var objective = offset;
+        for (var typeMetrics : metrics) {
+            for (var metric : typeMetrics) {
+                result[objective++] = metric.calculateForMerge(clustering, source, target);
+            }
+        }
+    }
+
+    /**
+     * Evaluates the metrics on the clustering resulting from merging the {@code source} cluster into the
+     * {@code target} cluster of the given clustering as long as the weighted quality of the merger can still be below
+     * the given threshold.
+     * <p>
+     * The metrics without a {@link Metric#lowerBoundForMerge lower bound} are evaluated first. Afterwards, the bounded
+     * metrics are evaluated one by one. Before every evaluation, the weighted sum of the metrics evaluated so far and
+     * the bounds of the remaining metrics is compared with the threshold. When it exceeds the threshold, the merger can
+     * not improve on it and the evaluation is abandoned. The weights should therefore not be negative.
+     *
+     * @param clustering the clustering to merge two clusters of
+     * @param source     the cluster to merge into the target cluster
+     * @param target     the cluster to merge the source cluster into
+     * @param weights    the weight of every objective, in the order of evaluation
+     * @param threshold  the weighted quality, i.e. the weighted sum divided by the total weight, to improve on
+     * @param result     the array to write the metric values to in the order of evaluation
+     * @param offset     the position in the array to write the first metric value to
+     * @return whether all metrics have been evaluated, otherwise the merger can not improve on the threshold and the
+     * metric values written are incomplete
+     */
+    public boolean evaluateForMergeBounded(Clustering clustering, int source, int target, double[] weights,
+                                           double threshold, double[] result, int offset) {
+        var bounds = new double[objectiveCount];
+        var totalWeight = 0.0;
+        var remainingBound = 0.0;
+        var objective = 0;
+        for (var typeMetrics : metrics) {
+            for (var metric : typeMetrics) {
+                bounds[objective] = metric.lowerBoundForMerge(clustering, source, target);
+                totalWeight += weights[objective];
+                if (!Double.isInfinite(bounds[objective])) {
+                    remainingBound += weights[objective] * bounds[objective];
+                }
+                objective++;
+            }
+        }
+
+        // Evaluate the unbounded metrics first as they are needed to bound the weighted quality
+        var sum = 0.0;
+        objective = 0;
+        for (var typeMetrics : metrics) {
+            for (var metric : typeMetrics) {
+                if (Double.isInfinite(bounds[objective])) {
+                    result[offset + objective] = metric.calculateForMerge(clustering, source, target);
+                    sum += weights[objective] * result[offset + objective];
+                }
+                objective++;
+            }
+        }
+
+        objective = 0;
+        for (var typeMetrics : metrics) {
+            for (var metric : typeMetrics) {
+                if (!Double.isInfinite(bounds[objective])) {
+                    if (exceeds((sum + remainingBound) / totalWeight, threshold)) {
+                        return false;
+                    }
+                    result[offset + objective] = metric.calculateForMerge(clustering, source, target);
+                    sum += weights[objective] * result[offset + objective];
+                    remainingBound -= weights[objective] * bounds[objective];
+                }
+                objective++;
+            }
+        }
+        return true;
+    }
+
+    private static boolean exceeds(double bound, double threshold) {
+        // Allow for rounding differences between the bound and the weighted quality such that equal qualities are kept
+        return bound - threshold > BOUND_TOLERANCE * Math.max(1.0, Math.abs(threshold));
+    }
+
+    /**
+     * Groups the given metric values in the order of evaluation by their metric type.
+     *
+     * @param values the metric values in the order of evaluation
+     * @return the metric values by metric type
+     */
+    public Map<MetricType, double[]> byMetricType(double[] values) {
+        Map<MetricType, double[]> result = new EnumMap<>(MetricType.class);
+        for (var i = 0; i < metrics.length; i++) {
+            var typeValues = new double[metrics[i].length];
+            System.arraycopy(values, objectiveOffsets[i], typeValues, 0, typeValues.length);
+            result.put(metricTypes.get(i), typeValues);
+        }
+        return result;
+    }
+}
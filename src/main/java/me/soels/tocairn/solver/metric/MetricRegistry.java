@@ -0,0 +1,73 @@
+package me.soels.tocairn.solver.metric;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the {@link Metric metrics} to evaluate for every {@link MetricType}.
+ * <p>
+ * The metrics do not maintain state between calculations. Therefore, one instance of every metric is shared among all
+ * evaluations. Additional metrics can be registered for a metric type through {@link #register(MetricType, Metric)},
+ * which are evaluated after the metrics already registered for that type. Registering a metric only affects the
+ * solvers constructed afterwards.
+ * <p>
+ * Note that registering a metric changes the amount of objectives of the metric type. AHCA configurations hold one
+ * weight for every metric, so configurations created before registering a metric can no longer be run and new
+ * configurations are needed.
+ */
+public class MetricRegistry {
+    private static volatile Map<MetricType, List<Metric>> metrics = createDefaultMetrics();
+
+    private MetricRegistry() {
+        // Utility class, do not initialise.
+    }
+
+    private static Map<MetricType, List<Metric>> createDefaultMetrics() {
+        var result = new EnumMap<MetricType, List<Metric>>(MetricType.class);
+        result.put(MetricType.DATA_AUTONOMY, List.of(new SelmadjiFIntra(), new SelmadjiFInter()));
+        result.put(MetricType.FOCUSED_ON_ONE, List.of(new SelmadjiFOne()));
+        result.put(MetricType.BEHAVIORAL_AUTONOMY, List.of(new SelmadjiFAutonomy()));
+        result.put(MetricType.DECOUPLED_COHESIVE, List.of(new CarvalhoCohesion(), new CarvalhoCoupling()));
+        result.put(MetricType.REUSABLE, List.of(new CarvalhoReusable()));
+        result.put(MetricType.LIMITED_COMMUNICATION_OVERHEAD, List.of(new CarvalhoOverhead()));
+        result.put(MetricType.MODULARISED_FEATURES, List.of(new CarvalhoFeatureModularization()));
+        return result;
+    }
+
+    /**
+     * Returns the metrics registered for the given metric type.
+     *
+     * @param metricType the metric type to retrieve the metrics for
+     * @return the unmodifiable list of metrics in order of evaluation
+     */
+    public static List<Metric> getMetrics(MetricType metricType) {
+        var result = metrics.get(metricType);
+        if (result == null) {
+            throw new IllegalStateException("Unknown metric type " + metricType);
+        }
+        return result;
+    }
+
+    /**
+     * Registers an additional metric for the given metric type.
+     * <p>
+     * The metric should not maintain state between calculations as it is shared among all evaluations. AHCA
+     * configurations created before registering the metric lack a weight for it and are rejected by the solver.
+     *
+     * @param metricType the metric type to register the metric for
+     * @param metric     the metric to register
+     */
+    public static synchronized void register(MetricType metricType, Metric metric) {
+        if (getMetrics(metricType).contains(metric)) {
+            throw new IllegalArgumentException("Metric " + metric.getClass().getSimpleName() +
+                    " is already registered for metric type " + metricType);
+        }
+        var typeMetrics = new ArrayList<>(getMetrics(metricType));
+        typeMetrics.add(metric);
+        var result = new EnumMap<>(metrics);
+        result.put(metricType, List.copyOf(typeMetrics));
+        metrics = result;
+    }
+}
@@ -9,7 +9,7 @@ import java.util.List;
  * Enum used to identify and configure metrics used in a {@link Solver} through its {@link SolverConfiguration}.
  * <p>
  * Exposes a {@link #getMetrics()} function to retrieve the metrics for this type. We can not model this in the enum
- * as it will be stored in the graph database.
+ * as it will be stored in the graph database. Instead, the metrics are kept in the {@link MetricRegistry}.
  */
 public enum MetricType {
     DATA_AUTONOMY,
@@ -20,24 +20,12 @@ public enum MetricType {
     LIMITED_COMMUNICATION_OVERHEAD,
     MODULARISED_FEATURES;
 
+    /**
+     * Returns the metrics of this type as registered in the {@link MetricRegistry}.
+     *
+     * @return the shared metric instances of this type
+     */
     public List<Metric> getMetrics() {
-        switch (this) {
-            case DATA_AUTONOMY:
-                return List.of(new SelmadjiFIntra(), new SelmadjiFInter());
-            case FOCUSED_ON_ONE:
-                return List.of(new SelmadjiFOne());
-            case BEHAVIORAL_AUTONOMY:
-                return List.of(new SelmadjiFAutonomy());
-            case DECOUPLED_COHESIVE:
-                return List.of(new CarvalhoCohesion(), new CarvalhoCoupling());
-            case REUSABLE:
-                return List.of(new CarvalhoReusable());
-            case LIMITED_COMMUNICATION_OVERHEAD:
-                return List.of(new CarvalhoOverhead());
-            case MODULARISED_FEATURES:
-                return List.of(new CarvalhoFeatureModularization());
-            default:
-                throw new IllegalStateException("Unknown metric type " + this);
-        }
+        return MetricRegistry.getMetrics(this);
     }
 }
@@ -8,7 +8,6 @@ import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * Helper class that performs the metric calculation, allows for normalizing the metric values and calculates the
@@ -27,15 +26,25 @@ public class QualityCalculator {
      * @return a data structure containing the resulting metric values
      */
     public static Map<MetricType, double[]> performMetrics(SolverConfiguration configuration, Clustering clustering) {
-        Map<MetricType, double[]> result = new EnumMap<>(MetricType.class);
-        for (var metricType : configuration.getMetrics()) {
-            var metricValues = new double[metricType.getMetrics().size()];
-            for (int i = 0; i < metricType.getMetrics().size(); i++) {
-                metricValues[i] = metricType.getMetrics().get(i).calculate(clustering);
-            }
-            result.put(metricType, metricValues);
-        }
-        return result;
+        var evaluator = new MetricEvaluator(configuration.getMetrics());
+        return evaluator.byMetricType(evaluator.evaluate(clustering));
+    }
+
+    /**
+     * Performs the metrics for the clustering resulting from merging the {@code source} cluster into the
+     * {@code target} cluster of the given {@link Clustering}.
+     * <p>
+     * This does not construct the merged clustering but uses {@link Metric#calculateForMerge(Clustering, int, int)}.
+     *
+     * @param clustering the clustering to merge two clusters of
+     * @param source     the cluster to merge into the target cluster
+     * @param target     the cluster to merge the source cluster into
+     * @return a data structure containing the resulting metric values
+     */
+    public static Map<MetricType, double[]> performMetricsForMerge(SolverConfiguration configuration,
+                                                                   Clustering clustering, int source, int target) {
+        var evaluator = new MetricEvaluator(configuration.getMetrics());
+        return evaluator.byMetricType(evaluator.evaluateForMerge(clustering, source, target));
     }
 
     /**
@@ -51,52 +60,26 @@ public class QualityCalculator {
         var metricsArray = metrics.values().stream()
                 .flatMapToDouble(Arrays::stream)
                 .toArray();
-
-        var quality = 0.0;
-        for (int i = 0; i < weights.size(); i++) {
-            var weight = weights.get(i);
-            var metric = metricsArray[i];
-            quality += metric * weight;
-        }
-        return quality / weights.stream().mapToDouble(v -> v).sum();
+        return getWeightedTotalQuality(metricsArray, weights.stream().mapToDouble(v -> v).toArray());
     }
 
     /**
-     * Returns the minimum and maximum values for the given metric values such that they can be used in normalization.
+     * Returns the weighted total quality for the metrics given in the order of the weights.
+     * <p>
+     * The metrics may or may not be normalized.
      *
-     * @param allMetricValues all the metric values
-     * @return the minimum and maximum values for the metrics
-     * @see <a href="https://people.revoledu.com/kardi/tutorial/Similarity/Normalization.html">Normalization</a>
+     * @param metrics the metrics to calculate the total quality from
+     * @param weights the weights of the metrics
+     * @return the weighted total quality
      */
-    @SuppressWarnings("unchecked") // Generic array creation not possible, safe cast.
-    public static Map<MetricType, Pair<Double, Double>[]> getMinMaxValues(List<Map<MetricType, double[]>> allMetricValues) {
-        // Initialize with one solution
-        var minMaxValues = allMetricValues.get(0).entrySet().stream()
-                .map(entry -> Pair.of(entry.getKey(),
-                        (Pair<Double, Double>[]) Arrays.stream(entry.getValue())
-                                .mapToObj(d -> Pair.of(d, d))
-                                .toArray(Pair[]::new)
-                ))
-                .collect(Collectors.toMap(Pair::getKey, Pair::getValue));
-
-        // Calculate min-max pair for every metric.
-        for (var metricValues : allMetricValues) {
-            for (var entry : metricValues.entrySet()) {
-                var metricType = entry.getKey();
-                for (int i = 0; i < entry.getValue().length; i++) {
-                    var metricValue = entry.getValue()[i];
-                    var current = minMaxValues.get(metricType)[i];
-                    if (metricValue < current.getKey()) {
-                        current = Pair.of(metricValue, current.getValue());
-                    }
-                    if (metricValue > current.getValue()) {
-                        current = Pair.of(current.getKey(), metricValue);
-                    }
-                    minMaxValues.get(metricType)[i] = current;
-                }
-            }
+    public static double getWeightedTotalQuality(double[] metrics, double[] weights) {
+        var quality = 0.0;
+        var totalWeight = 0.0;
+        for (int i = 0; i < weights.length; i++) {
+            quality += metrics[i] * weights[i];
+            totalWeight += weights[i];
         }
-        return minMaxValues;
+        return quality / totalWeight;
     }
 
     /**
@@ -124,25 +107,40 @@ public class QualityCalculator {
             double[] normalized = new double[entry.getValue().length];
             for (int i = 0; i < entry.getValue().length; i++) {
                 var knownRange = minMaxes.get(entry.getKey())[i];
-                var currentMetric = entry.getValue()[i];
-                if (knownRange.getKey() < 0) {
-                    // Transform by adding the absolute value of minValue to the metrics
-                    var shift = Math.abs(knownRange.getKey());
-                    currentMetric += shift;
-                    knownRange = Pair.of(0.0, knownRange.getValue() + shift);
-                }
-                var division = knownRange.getValue() - knownRange.getKey();
-                if (division == 0) {
-                    // Here all metrics have the same value (in the space of N0). We cap the value to a maximum of 1.0
-                    // such that either quality is considered the same (even though might be improved) when above 1.0
-                    // but at least allows room for improvement to under 1.0.
-                    normalized[i] = Math.min(currentMetric, 1.0);
-                } else {
-                    normalized[i] = (currentMetric - knownRange.getKey()) / division;
-                }
+                normalized[i] = normalize(entry.getValue()[i], knownRange.getKey(), knownRange.getValue());
             }
             normalizedMetrics.put(entry.getKey(), normalized);
         }
         return normalizedMetrics;
     }
+
+    /**
+     * Normalizes the given metric value based on the metric's minimum and maximum value.
+     *
+     * @param metric the metric value to normalize
+     * @param min    the minimum value of the metric
+     * @param max    the maximum value of the metric
+     * @return the normalized metric value
+     * @see #normalize(Map, Map)
+     */
+    public static double normalize(double metric, double min, double max) {
+        var currentMetric = metric;
+        var knownMin = min;
+        var knownMax = max;
+        if (knownMin < 0) {
+            // Transform by adding the absolute value of minValue to the metrics
+            var shift = Math.abs(knownMin);
+            currentMetric += shift;
+            knownMax += shift;
+            knownMin = 0.0;
+        }
+        var division = knownMax - knownMin;
+        if (division == 0) {
+            // Here all metrics have the same value (in the space of N0). We cap the value to a maximum of 1.0
+            // such that either quality is considered the same (even though might be improved) when above 1.0
+            // but at least allows room for improvement to under 1.0.
+            return Math.min(currentMetric, 1.0);
+        }
+        return (currentMetric - knownMin) / division;
+    }
 }
@@ -1,14 +1,12 @@
 package me.soels.tocairn.solver.metric;
 
-import me.soels.tocairn.model.DataRelationship;
-import me.soels.tocairn.model.OtherClass;
-import org.apache.commons.lang3.tuple.Pair;
+import me.soels.tocairn.solver.ClassGraph;
+import me.soels.tocairn.solver.Clustering;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import static me.soels.tocairn.model.DataRelationshipType.WRITE;
 import static me.soels.tocairn.util.SigmaCalculator.getSigma;
 
 /**
@@ -29,14 +27,14 @@ public abstract class SelmadjiDataAutonomy implements Metric {
      * Performs the DataDepends metric as described in the thesis. Note that as we are using already existing
      * relationships, we omit the {@code 0} case.
      *
-     * @param i the data relationship from otherClass i to d
-     * @param j the data relationship from otherClass j to d
+     * @param iWrites whether the data relationship from otherClass i to d is a write relationship
+     * @param jWrites whether the data relationship from otherClass j to d is a write relationship
      * @return the measurement of data dependence of two classes to a shared data class
      */
-    private double dataDepends(DataRelationship i, DataRelationship j) {
-        if (i.getType() == WRITE && j.getType() == WRITE) {
+    private double dataDepends(boolean iWrites, boolean jWrites) {
+        if (iWrites && jWrites) {
             return 1.0;
-        } else if (i.getType() == WRITE || j.getType() == WRITE) {
+        } else if (iWrites || jWrites) {
             return 0.5;
         } else {
             return 0.25;
@@ -44,58 +42,181 @@ public abstract class SelmadjiDataAutonomy implements Metric {
     }
 
     /**
-     * Performs the Data metric as described in the thesis.
+     * Performs the Data metric as described in the thesis of class {@code i} with every other class either inside or
+     * outside the given microservice, without dividing it by the number of data classes manipulated in the
+     * microservice. Note that as we are using already existing relationships, we omit the {@code 0} case.
+     * <p>
+     * Only the classes sharing a data class with class {@code i} are visited through the accessors of the data classes
+     * in the {@link ClassGraph}. For every data relationship of class {@code i}, the first data relationship of the
+     * other class to the same data class is used.
      *
-     * @param i                        the first class to match data relationship for
-     * @param j                        the second class to match data relationship for
-     * @param nbDataManipulatedInMicro the number of data classes manipulated by ms
-     * @return the measurement of data dependence of two classes to its shared data class
+     * @param clustering the clustering containing the microservice
+     * @param i          the index of the class to match data relationships for
+     * @param cluster    the microservice to match the other classes with
+     * @param within     whether to match the other classes inside or outside of the microservice
+     * @return the summed data dependence of class {@code i} with the matched classes
      */
-    protected double data(OtherClass i, OtherClass j, long nbDataManipulatedInMicro) {
-        var sharedDataRelationshipPairs = new ArrayList<Pair<DataRelationship, DataRelationship>>();
-        for (var dataRelI : i.getDataRelationships()) {
-            j.getDataRelationships().stream()
-                    .filter(dataRelJ -> dataRelJ.getCallee().equals(dataRelI.getCallee()))
-                    .findFirst()
-                    .ifPresent(shared -> sharedDataRelationshipPairs.add(Pair.of(dataRelI, shared)));
-        }
-
-        if (sharedDataRelationshipPairs.isEmpty()) {
-            // These two classes do not share a data object, returning 0. Corresponding to the sum of k in Data of Selmadji.
-            return 0.0;
+    protected double sharedData(Clustering clustering, int i, int cluster, boolean within) {
+        var graph = clustering.getGraph();
+        var result = 0.0;
+        for (var dataRel = graph.dataStart(i); dataRel < graph.dataEnd(i); dataRel++) {
+            var dataClass = graph.getDataTarget(dataRel);
+            for (var accessor = graph.accessorStart(dataClass); accessor < graph.accessorEnd(dataClass); accessor++) {
+                var j = graph.getAccessor(accessor);
+                if (j != i && (clustering.getClusterOf(j) == cluster) == within) {
+                    result += sharedData(graph, dataRel, accessor);
+                }
+            }
         }
+        // When the classes do not share a data object, this returns 0. Corresponding to the sum of k in Data of
+        // Selmadji.
+        return result;
+    }
 
-        return sharedDataRelationshipPairs.stream()
-                .mapToDouble(pair -> dataDepends(pair.getKey(), pair.getValue()) * freq(pair.getKey(), pair.getValue()))
-                .sum() / nbDataManipulatedInMicro;
+    private double sharedData(ClassGraph graph, int dataRelationship, int accessor) {
+        return dataDepends(graph.isDataWrite(dataRelationship), graph.isAccessorWrite(accessor)) *
+                freq(graph.getDataFrequency(dataRelationship), graph.getAccessorFrequency(accessor));
     }
 
     /**
      * Calculates the frequency at which two classes interact with a data class.
      * <p>
-     * If dynamic information is present, we will add that frequency to that of the static frequency.
+     * If dynamic information is present, the frequencies given contain that frequency on top of the static frequency.
      *
-     * @param i the relationship from other class i to d
-     * @param j the relationship from other class j to d
+     * @param freqI the frequency of the relationship from other class i to d
+     * @param freqJ the frequency of the relationship from other class j to d
      * @return the frequency metric
      */
-    private double freq(DataRelationship i, DataRelationship j) {
-        var freqI = i.getStaticFrequency() + i.getDynamicFrequency().orElse(0L);
-        var freqJ = j.getStaticFrequency() + j.getDynamicFrequency().orElse(0L);
-        return freqI + freqJ - getSigma(List.of(freqI, freqJ));
+    private double freq(long freqI, long freqJ) {
+        return freqI + freqJ - getSigma(freqI, freqJ);
     }
 
     /**
      * Returns the number of unique data classes modified by the classes representing the microservice.
      *
-     * @param classes the classes representing the microservice
+     * @param graph   the graph containing the classes
+     * @param members the indices of the classes representing the microservice
      * @return the amount of data classes linked to the classes
      */
-    protected long nbDataManipulatedInMicro(Set<OtherClass> classes) {
-        return classes.stream()
-                .flatMap(clazz -> clazz.getDataRelationships().stream())
-                .map(DataRelationship::getCallee)
-                .distinct()
-                .count();
+    protected long nbDataManipulatedInMicro(ClassGraph graph, int[] members) {
+        return dataManipulatedInMicro(graph, members).cardinality();
+    }
+
+    private BitSet dataManipulatedInMicro(ClassGraph graph, int[] members) {
+        var seen = new BitSet(graph.getDataClassCount());
+        for (var clazz : members) {
+            for (var dataRel = graph.dataStart(clazz); dataRel < graph.dataEnd(clazz); dataRel++) {
+                seen.set(graph.getDataTarget(dataRel));
+            }
+        }
+        return seen;
+    }
+
+    /**
+     * Returns the data contributions of every microservice in the given clustering, shared between the data autonomy
+     * metrics.
+     *
+     * @param clustering the clustering to retrieve the contributions for
+     * @return the data contributions for the clustering
+     */
+    protected DataContributions getDataContributions(Clustering clustering) {
+        return clustering.getContributions(SelmadjiDataAutonomy.class, this::calculateDataContributions);
+    }
+
+    private DataContributions calculateDataContributions(Clustering clustering) {
+        var graph = clustering.getGraph();
+        var contributions = new DataContributions(clustering.getClusterCount());
+        for (var cluster = 0; cluster < clustering.getClusterCount(); cluster++) {
+            contributions.dataManipulated[cluster] = dataManipulatedInMicro(graph, clustering.getMembers(cluster));
+        }
+        for (var i = 0; i < graph.size(); i++) {
+            var cluster = clustering.getClusterOf(i);
+            for (var dataRel = graph.dataStart(i); dataRel < graph.dataEnd(i); dataRel++) {
+                var dataClass = graph.getDataTarget(dataRel);
+                for (var accessor = graph.accessorStart(dataClass); accessor < graph.accessorEnd(dataClass); accessor++) {
+                    var j = graph.getAccessor(accessor);
+                    if (j == i) {
+                        continue;
+                    }
+                    if (clustering.getClusterOf(j) == cluster) {
+                        contributions.internalData[cluster] += sharedData(graph, dataRel, accessor);
+                    } else {
+                        contributions.externalData[cluster] += sharedData(graph, dataRel, accessor);
+                    }
+                }
+            }
+        }
+        return contributions;
+    }
+
+    /**
+     * Returns the summed data dependence between the classes of the two given microservices in both directions.
+     *
+     * @param clustering    the clustering containing the microservices
+     * @param contributions the data contributions of the clustering
+     * @param a             the first microservice
+     * @param b             the second microservice
+     * @return the data dependence between both microservices
+     */
+    protected double getSharedData(Clustering clustering, DataContributions contributions, int a, int b) {
+        var key = (long) Math.min(a, b) * clustering.getClusterCount() + Math.max(a, b);
+        return contributions.sharedData.computeIfAbsent(key, k -> {
+            var result = 0.0;
+            for (var i : clustering.getMembers(a)) {
+                result += sharedData(clustering, i, b, true);
+            }
+            for (var j : clustering.getMembers(b)) {
+                result += sharedData(clustering, j, a, true);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Returns the number of unique data classes modified by the classes of both given microservices.
+     *
+     * @param contributions the data contributions of the clustering
+     * @param a             the first microservice
+     * @param b             the second microservice
+     * @return the amount of data classes linked to the classes of both microservices
+     */
+    protected long nbDataManipulatedInMerge(DataContributions contributions, int a, int b) {
+        var merged = (BitSet) contributions.dataManipulated[a].clone();
+        merged.or(contributions.dataManipulated[b]);
+        return merged.cardinality();
+    }
+
+    /**
+     * The data dependence per microservice in a clustering such that mergers of microservices can be assessed.
+     * <p>
+     * The data dependence is summed without dividing by the number of data classes manipulated in the microservice
+     * as this number changes upon merging.
+     */
+    protected static final class DataContributions {
+        private final BitSet[] dataManipulated;
+        // Data dependence of ordered pairs of classes within the microservice
+        private final double[] internalData;
+        // Data dependence of classes in the microservice to classes outside of the microservice
+        private final double[] externalData;
+        // Data dependence between pairs of microservices, calculated on demand
+        private final Map<Long, Double> sharedData = new ConcurrentHashMap<>();
+
+        private DataContributions(int clusterCount) {
+            this.dataManipulated = new BitSet[clusterCount];
+            this.internalData = new double[clusterCount];
+            this.externalData = new double[clusterCount];
+        }
+
+        public long getNbDataManipulated(int cluster) {
+            return dataManipulated[cluster].cardinality();
+        }
+
+        public double getInternalData(int cluster) {
+            return internalData[cluster];
+        }
+
+        public double getExternalData(int cluster) {
+            return externalData[cluster];
+        }
     }
 }
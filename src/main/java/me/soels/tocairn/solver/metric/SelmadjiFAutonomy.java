@@ -1,13 +1,9 @@
 package me.soels.tocairn.solver.metric;
 
-import me.soels.tocairn.model.OtherClass;
 import me.soels.tocairn.solver.Clustering;
-import org.apache.commons.lang3.tuple.Pair;
+import me.soels.tocairn.util.SigmaStatistics;
 
-import java.util.Set;
-import java.util.stream.Collectors;
-
-import static me.soels.tocairn.util.SigmaCalculator.getSigma;
+import java.util.stream.IntStream;
 
 /**
  * FAutonomy metric as proposed by Selmadji et al. (2020).
@@ -19,41 +15,62 @@ import static me.soels.tocairn.util.SigmaCalculator.getSigma;
 public class SelmadjiFAutonomy extends SelmadjiStructuralBehavior {
     @Override
     public double calculate(Clustering clustering) {
-        return clustering.getByCluster().values().stream()
-                .mapToDouble(microservice -> exterCoup(microservice, clustering))
+        return IntStream.range(0, clustering.getClusterCount())
+                .mapToDouble(cluster -> exterCoup(clustering, cluster))
                 .average()
                 .orElse(0);
     }
 
+    @Override
+    public double calculateForMerge(Clustering clustering, int source, int target) {
+        var coupContributions = getCoupContributions(clustering);
+        var contributions = clustering.getContributions(SelmadjiFAutonomy.class, current ->
+                new ClusterContributions(current, cluster -> exterCoup(coupContributions.getExternalCoup(cluster))));
+
+        // The pairs between the merged microservices are no longer external pairs of either microservice
+        var sharedCoup = getSharedCoup(clustering, coupContributions, source, target);
+        var merged = coupContributions.getExternalCoup(source).subtract(sharedCoup)
+                .combine(coupContributions.getExternalCoup(target).subtract(sharedCoup));
+        return contributions.averageAfterMerge(source, target, exterCoup(merged));
+    }
+
+    private double exterCoup(SigmaStatistics coupValues) {
+        return (coupValues.getSum() - coupValues.getSigma()) / coupValues.getCount();
+    }
+
     /**
      * Calculates exterCoup measurement as devised by Selmadji et al. (2020).
      *
-     * @param microservice the microservice to perform the measurement for
-     * @param clustering   the clustering to retrieve external pairs from
+     * @param clustering the clustering to retrieve external pairs from
+     * @param cluster    the microservice to perform the measurement for
      * @return the exterCoup value for this microservice
      */
-    private double exterCoup(Set<OtherClass> microservice, Clustering clustering) {
-        var optimizationKey = microservice.stream().map(clazz -> clazz.getId().toString()).sorted().collect(Collectors.joining(""));
-        var existingValue = clustering.getOptimizationData().getFAutonomy().get(optimizationKey);
+    private double exterCoup(Clustering clustering, int cluster) {
+        var optimizationKey = clustering.getClusterKey(cluster);
+        var existingValue = clustering.getOptimizationData().getFAutonomy().getIfPresent(optimizationKey);
         if (existingValue != null) {
             return existingValue;
         }
 
-        // Get all the classes that do not belong to this microservice.
-        var externalClasses = clustering.getByClass().keySet().stream()
-                .filter(clazz -> !microservice.contains(clazz))
-                .collect(Collectors.toList());
-
         // Get all the pairs of classes in this microservice with those of external classes and calculate its coup value
-        var coupValues = microservice.stream()
-                .flatMap(i -> externalClasses.stream()
-                        .map(j -> Pair.of(i, j)))
-                .map(pair -> coup(pair.getKey(), pair.getValue(), clustering.getOptimizationData().getNbTotalCalls()))
-                .collect(Collectors.toList());
+        // Only pairs calling each other have a non-zero coup value. The pairs with a coup value of 0 are only added as
+        // the amount of zero values.
+        var graph = clustering.getGraph();
+        var index = clustering.getOptimizationData().getCouplingIndex();
+        var nbTotalCalls = clustering.getOptimizationData().getNbTotalCalls();
+        var members = clustering.getMembers(cluster);
+        var nbPairs = (long) members.length * (graph.size() - members.length);
+        var coupValues = new SigmaStatistics();
+        for (var i : members) {
+            for (var pos = index.neighbourStart(i); pos < index.neighbourEnd(i); pos++) {
+                if (clustering.getClusterOf(index.getNeighbour(pos)) != cluster) {
+                    coupValues.add(coup(index, i, index.getNeighbour(pos), nbTotalCalls));
+                }
+            }
+        }
 
         // Perform the exterCoup measurement
-        var coupSum = coupValues.stream().mapToDouble(value -> value).sum();
-        var result = (coupSum - getSigma(coupValues)) / coupValues.size();
+        var result = exterCoup(coupValues.combine(SigmaStatistics.zeros(nbPairs - coupValues.getCount())));
         clustering.getOptimizationData().getFAutonomy().put(optimizationKey, result);
         return result;
     }
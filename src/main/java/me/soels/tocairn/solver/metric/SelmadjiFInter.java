@@ -1,11 +1,8 @@
 package me.soels.tocairn.solver.metric;
 
-import me.soels.tocairn.model.OtherClass;
 import me.soels.tocairn.solver.Clustering;
-import org.apache.commons.lang3.tuple.Pair;
 
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * FInter metric as proposed by Selmadji et al. (2020).
@@ -17,48 +14,67 @@ import java.util.stream.Collectors;
 public class SelmadjiFInter extends SelmadjiDataAutonomy {
     @Override
     public double calculate(Clustering clustering) {
-        return clustering.getByCluster().values().stream()
-                .mapToDouble(microservice -> finter(microservice, clustering))
+        return IntStream.range(0, clustering.getClusterCount())
+                .mapToDouble(cluster -> finter(clustering, cluster))
                 .average()
                 .orElse(0);
     }
 
-    private double finter(Set<OtherClass> microservice, Clustering clustering) {
-        var optimizationKey = microservice.stream().map(clazz -> clazz.getId().toString()).sorted().collect(Collectors.joining(""));
-        var existingValue = clustering.getOptimizationData().getFInter().get(optimizationKey);
+    @Override
+    public double calculateForMerge(Clustering clustering, int source, int target) {
+        var dataContributions = getDataContributions(clustering);
+        var contributions = clustering.getContributions(SelmadjiFInter.class, current ->
+                new ClusterContributions(current, cluster -> finter(current, dataContributions.getExternalData(cluster),
+                        dataContributions.getNbDataManipulated(cluster), current.getMembers(cluster).length)));
+
+        // The pairs between the merged microservices are no longer external pairs
+        var externalData = dataContributions.getExternalData(source) + dataContributions.getExternalData(target) -
+                getSharedData(clustering, dataContributions, source, target);
+        var merged = finter(clustering, externalData, nbDataManipulatedInMerge(dataContributions, source, target),
+                clustering.getMembers(source).length + clustering.getMembers(target).length);
+        return contributions.averageAfterMerge(source, target, merged);
+    }
+
+    private double finter(Clustering clustering, double externalData, long nbDataManipulatedInMicro, int size) {
+        var nbExternalClasses = clustering.getGraph().size() - size;
+        if (nbDataManipulatedInMicro == 0 || nbExternalClasses == 0) {
+            return 0.0;
+        }
+        return externalData / nbDataManipulatedInMicro / ((double) size * nbExternalClasses);
+    }
+
+    private double finter(Clustering clustering, int cluster) {
+        var optimizationKey = clustering.getClusterKey(cluster);
+        var existingValue = clustering.getOptimizationData().getFInter().getIfPresent(optimizationKey);
         if (existingValue != null) {
             return existingValue;
         }
 
         // Get the cardinality of the set of data classes manipulated by classes in this microservice
-        var nbDataManipulatedInMicro = nbDataManipulatedInMicro(microservice);
+        var graph = clustering.getGraph();
+        var members = clustering.getMembers(cluster);
+        var nbDataManipulatedInMicro = nbDataManipulatedInMicro(graph, members);
         if (nbDataManipulatedInMicro == 0) {
             // This microservice does not modify data. Therefore, it will not have any data autonomy
             clustering.getOptimizationData().getFInter().put(optimizationKey, 0.0);
             return 0.0;
         }
 
-        // Get all the classes that do not belong to this microservice.
-        var externalClasses = clustering.getByClass().keySet().stream()
-                .filter(clazz -> !microservice.contains(clazz))
-                .collect(Collectors.toList());
-        if (externalClasses.isEmpty()) {
+        var nbExternalClasses = graph.size() - members.length;
+        if (nbExternalClasses == 0) {
             // There are no more external classes, we have all classes in one microservice, i.e. monolith.
             // Set FInter to 0.
             clustering.getOptimizationData().getFInter().put(optimizationKey, 0.0);
             return 0.0;
         }
 
-        // Get all the pairs of classes in this microservice with those of external classes.
-        var pairs = microservice.stream()
-                .flatMap(i -> externalClasses.stream()
-                        .map(j -> Pair.of(i, j)))
-                .collect(Collectors.toList());
-
-        // Calculate the metric
-        var result = pairs.stream()
-                .mapToDouble(pair -> data(pair.getKey(), pair.getValue(), nbDataManipulatedInMicro))
-                .sum() / pairs.size();
+        // Calculate the metric over all the pairs of classes in this microservice with those of external classes.
+        // Only the pairs sharing a data class are visited as the Data metric is 0 for the other pairs.
+        var sum = 0.0;
+        for (var i : members) {
+            sum += sharedData(clustering, i, cluster, false);
+        }
+        var result = sum / nbDataManipulatedInMicro / ((double) members.length * nbExternalClasses);
         clustering.getOptimizationData().getFInter().put(optimizationKey, result);
         return result;
     }
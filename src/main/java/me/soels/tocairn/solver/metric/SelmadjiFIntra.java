@@ -1,11 +1,8 @@
 package me.soels.tocairn.solver.metric;
 
-import me.soels.tocairn.model.OtherClass;
 import me.soels.tocairn.solver.Clustering;
-import org.apache.commons.lang3.tuple.Pair;
 
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * FIntra metric as proposed by Selmadji et al. (2020).
@@ -20,45 +17,65 @@ import java.util.stream.Collectors;
 public class SelmadjiFIntra extends SelmadjiDataAutonomy {
     @Override
     public double calculate(Clustering clustering) {
-        return -1 * clustering.getByCluster().values().stream()
-                .mapToDouble(ms -> fintra(ms, clustering))
+        return -1 * IntStream.range(0, clustering.getClusterCount())
+                .mapToDouble(cluster -> fintra(clustering, cluster))
                 .average()
                 .orElse(0);
     }
 
-    private double fintra(Set<OtherClass> microservice, Clustering clustering) {
-        var optimizationKey = microservice.stream().map(clazz -> clazz.getId().toString()).sorted().collect(Collectors.joining(""));
-        var existingValue = clustering.getOptimizationData().getFIntra().get(optimizationKey);
+    @Override
+    public double calculateForMerge(Clustering clustering, int source, int target) {
+        var dataContributions = getDataContributions(clustering);
+        var contributions = clustering.getContributions(SelmadjiFIntra.class, current ->
+                new ClusterContributions(current, cluster -> fintra(dataContributions.getInternalData(cluster),
+                        dataContributions.getNbDataManipulated(cluster), current.getMembers(cluster).length)));
+
+        // The pairs between the merged microservices become internal pairs
+        var internalData = dataContributions.getInternalData(source) + dataContributions.getInternalData(target) +
+                getSharedData(clustering, dataContributions, source, target);
+        var merged = fintra(internalData, nbDataManipulatedInMerge(dataContributions, source, target),
+                clustering.getMembers(source).length + clustering.getMembers(target).length);
+        return -1 * contributions.averageAfterMerge(source, target, merged);
+    }
+
+    private double fintra(double internalData, long nbDataManipulatedInMicro, int size) {
+        if (nbDataManipulatedInMicro == 0 || size < 2) {
+            return 0.0;
+        }
+        return internalData / nbDataManipulatedInMicro / ((double) size * (size - 1));
+    }
+
+    private double fintra(Clustering clustering, int cluster) {
+        var optimizationKey = clustering.getClusterKey(cluster);
+        var existingValue = clustering.getOptimizationData().getFIntra().getIfPresent(optimizationKey);
         if (existingValue != null) {
             return existingValue;
         }
 
         // Get the cardinality of the set of data classes manipulated by classes in this microservice
-        var nbDataManipulatedInMicro = nbDataManipulatedInMicro(microservice);
+        var graph = clustering.getGraph();
+        var members = clustering.getMembers(cluster);
+        var nbDataManipulatedInMicro = nbDataManipulatedInMicro(graph, members);
         if (nbDataManipulatedInMicro == 0) {
             // This microservice does not modify data. Therefore, it will not have any data autonomy
             clustering.getOptimizationData().getFIntra().put(optimizationKey, 0.0);
             return 0.0;
         }
 
-        // Get all the pairs of classes in this microservice excluding self-pairs.
-        var pairs = microservice.stream()
-                .flatMap(i -> microservice.stream()
-                        .filter(j -> !i.equals(j))
-                        .map(j -> Pair.of(i, j)))
-                .collect(Collectors.toList());
-
-        if (pairs.isEmpty()) {
+        if (members.length < 2) {
             // We do not have any pairs in this microservice to calculate this metric with.
             // We set the value to 0.0 to favour microservices with at least two classes.
             clustering.getOptimizationData().getFIntra().put(optimizationKey, 0.0);
             return 0.0;
         }
 
-        // Calculate the metric
-        var result = pairs.stream()
-                .mapToDouble(pair -> data(pair.getKey(), pair.getValue(), nbDataManipulatedInMicro))
-                .sum() / pairs.size();
+        // Calculate the metric over all the pairs of classes in this microservice excluding self-pairs.
+        // Only the pairs sharing a data class are visited as the Data metric is 0 for the other pairs.
+        var sum = 0.0;
+        for (var i : members) {
+            sum += sharedData(clustering, i, cluster, true);
+        }
+        var result = sum / nbDataManipulatedInMicro / ((double) members.length * (members.length - 1));
         clustering.getOptimizationData().getFIntra().put(optimizationKey, result);
         return result;
     }
@@ -1,15 +1,9 @@
 package me.soels.tocairn.solver.metric;
 
-import me.soels.tocairn.model.DependenceRelationship;
-import me.soels.tocairn.model.OtherClass;
 import me.soels.tocairn.solver.Clustering;
-import me.soels.tocairn.solver.OptimizationData;
-import org.apache.commons.lang3.tuple.Pair;
+import me.soels.tocairn.util.SigmaStatistics;
 
-import java.util.Set;
-import java.util.stream.Collectors;
-
-import static me.soels.tocairn.util.SigmaCalculator.getSigma;
+import java.util.stream.IntStream;
 
 /**
  * FOne metric as proposed by Selmadji et al. (2020).
@@ -25,20 +19,41 @@ public class SelmadjiFOne extends SelmadjiStructuralBehavior {
     @Override
     public double calculate(Clustering clustering) {
         // Perform the FOne metric
-        return -1 * clustering.getByCluster().values().stream()
-                .mapToDouble(microservice -> calculateMicroservice(microservice, clustering))
+        return -1 * IntStream.range(0, clustering.getClusterCount())
+                .mapToDouble(cluster -> calculateMicroservice(clustering, cluster))
                 .average()
                 .orElse(0);
     }
 
-    private double calculateMicroservice(Set<OtherClass> microservice, Clustering clustering) {
-        var optimizationKey = microservice.stream().map(clazz -> clazz.getId().toString()).sorted().collect(Collectors.joining(""));
-        var existingValue = clustering.getOptimizationData().getFOne().get(optimizationKey);
+    @Override
+    public double calculateForMerge(Clustering clustering, int source, int target) {
+        var coupContributions = getCoupContributions(clustering);
+        var contributions = clustering.getContributions(SelmadjiFOne.class, current -> new Contributions(current,
+                coupContributions));
+
+        // The pairs between the merged microservices become internal pairs in both directions
+        var sharedCoup = getSharedCoup(clustering, coupContributions, source, target);
+        var coupValues = coupContributions.getInternalCoup(source)
+                .combine(coupContributions.getInternalCoup(target))
+                .combine(sharedCoup)
+                .combine(sharedCoup);
+        var nbDirectConnections = contributions.nbDirectConnections[source] +
+                contributions.nbDirectConnections[target] + countConnections(clustering, source, target) +
+                countConnections(clustering, target, source);
+        var nbMethods = contributions.nbMethods[source] + contributions.nbMethods[target];
+        var size = clustering.getMembers(source).length + clustering.getMembers(target).length;
+        var merged = 0.5 * (interCoup(coupValues, size) + interCoh(nbDirectConnections, nbMethods, size));
+        return -1 * contributions.fOne.averageAfterMerge(source, target, merged);
+    }
+
+    private double calculateMicroservice(Clustering clustering, int cluster) {
+        var optimizationKey = clustering.getClusterKey(cluster);
+        var existingValue = clustering.getOptimizationData().getFOne().getIfPresent(optimizationKey);
         if (existingValue != null) {
             return existingValue;
         }
 
-        var result = 0.5 * (interCoup(microservice, clustering.getOptimizationData()) + interCoh(microservice));
+        var result = 0.5 * (interCoup(clustering, cluster) + interCoh(clustering, cluster));
         clustering.getOptimizationData().getFOne().put(optimizationKey, result);
         return result;
     }
@@ -46,29 +61,35 @@ public class SelmadjiFOne extends SelmadjiStructuralBehavior {
     /**
      * Calculates interCoup as devised by Selmadji et al. (2020).
      *
-     * @param microservice     the microservice to perform the measurement for
-     * @param optimizationData optimization data from previous calculations
+     * @param clustering the clustering containing the microservice and optimization data
+     * @param cluster    the microservice to perform the measurement for
      * @return the interCoup value for this microservice
      */
-    private double interCoup(Set<OtherClass> microservice, OptimizationData optimizationData) {
-        var coupValues = microservice.stream()
-                // Get all the pairs of classes in this microservice excluding self-pairs.
-                .flatMap(i -> microservice.stream()
-                        .filter(j -> !i.equals(j))
-                        .map(j -> Pair.of(i, j)))
-                // Calculate pair coup values
-                .map(pair -> coup(pair.getKey(), pair.getValue(), optimizationData.getNbTotalCalls()))
-                .collect(Collectors.toList());
-
-        if (coupValues.isEmpty()) {
+    private double interCoup(Clustering clustering, int cluster) {
+        var members = clustering.getMembers(cluster);
+        if (members.length < 2) {
             // There are no pairs, therefore we would get a division by 0.
             // To favor microservices with more than one class, we return 0.0 here.
             return 0.0;
         }
 
+        // Calculate pair coup values for all the pairs of classes in this microservice excluding self-pairs.
+        // Only pairs calling each other have a non-zero coup value. The pairs with a coup value of 0 are only added as
+        // the amount of zero values.
+        var index = clustering.getOptimizationData().getCouplingIndex();
+        var nbTotalCalls = clustering.getOptimizationData().getNbTotalCalls();
+        var nbPairs = (long) members.length * (members.length - 1);
+        var coupValues = new SigmaStatistics();
+        for (var i : members) {
+            for (var pos = index.neighbourStart(i); pos < index.neighbourEnd(i); pos++) {
+                if (clustering.getClusterOf(index.getNeighbour(pos)) == cluster) {
+                    coupValues.add(coup(index, i, index.getNeighbour(pos), nbTotalCalls));
+                }
+            }
+        }
+
         // Perform the interCoup measurement
-        var coupSum = coupValues.stream().mapToDouble(value -> value).sum();
-        return (coupSum - getSigma(coupValues)) / coupValues.size();
+        return interCoup(coupValues.combine(SigmaStatistics.zeros(nbPairs - coupValues.getCount())), members.length);
     }
 
     /**
@@ -77,22 +98,76 @@ public class SelmadjiFOne extends SelmadjiStructuralBehavior {
      * Here, the amount of direct connections are method calls, references and construct calls actually made where
      * the possible connections are those of all methods defined in all classes in this microservice.
      *
-     * @param microservice the classes in the microservice
+     * @param clustering the clustering containing the microservice
+     * @param cluster    the microservice to perform the measurement for
      * @return the inter cohesion value for this microservice
      */
-    private double interCoh(Set<OtherClass> microservice) {
-        var nbDirectConnections = microservice.stream()
-                .flatMap(clazz -> clazz.getDependenceRelationships().stream())
-                .filter(dep -> microservice.contains(dep.getCallee()))
-                .mapToInt(DependenceRelationship::getConnections)
-                .sum();
-        var nbPossibleConnections = microservice.stream()
-                .mapToInt(OtherClass::getMethodCount)
-                .sum() * (microservice.size() - 1); // Minus one to exclude self-reference.
+    private double interCoh(Clustering clustering, int cluster) {
+        var graph = clustering.getGraph();
+        var members = clustering.getMembers(cluster);
+        var nbDirectConnections = 0;
+        var nbMethods = 0;
+        for (var clazz : members) {
+            nbMethods += graph.getMethodCount(clazz);
+            for (var dep = graph.dependencyStart(clazz); dep < graph.dependencyEnd(clazz); dep++) {
+                if (clustering.getClusterOf(graph.getTarget(dep)) == cluster) {
+                    nbDirectConnections += graph.getConnections(dep);
+                }
+            }
+        }
+        return interCoh(nbDirectConnections, nbMethods, members.length);
+    }
+
+    private double interCoh(int nbDirectConnections, int nbMethods, int size) {
+        var nbPossibleConnections = nbMethods * (size - 1); // Minus one to exclude self-reference.
         if (nbPossibleConnections <= 0) {
             // Only one class in microservice, we want to penalize this and therefore set cohesion to 0.
             return 0;
         }
         return nbDirectConnections / (double) nbPossibleConnections;
     }
+
+    private double interCoup(SigmaStatistics coupValues, int size) {
+        if (size < 2) {
+            // There are no pairs, therefore we would get a division by 0.
+            return 0.0;
+        }
+        return (coupValues.getSum() - coupValues.getSigma()) / coupValues.getCount();
+    }
+
+    private int countConnections(Clustering clustering, int from, int to) {
+        var graph = clustering.getGraph();
+        var nbConnections = 0;
+        for (var clazz : clustering.getMembers(from)) {
+            for (var dep = graph.dependencyStart(clazz); dep < graph.dependencyEnd(clazz); dep++) {
+                if (clustering.getClusterOf(graph.getTarget(dep)) == to) {
+                    nbConnections += graph.getConnections(dep);
+                }
+            }
+        }
+        return nbConnections;
+    }
+
+    private final class Contributions {
+        private final int[] nbDirectConnections;
+        private final int[] nbMethods;
+        private final ClusterContributions fOne;
+
+        private Contributions(Clustering clustering, CoupContributions coupContributions) {
+            var graph = clustering.getGraph();
+            this.nbDirectConnections = new int[clustering.getClusterCount()];
+            this.nbMethods = new int[clustering.getClusterCount()];
+            for (var cluster = 0; cluster < clustering.getClusterCount(); cluster++) {
+                nbDirectConnections[cluster] = countConnections(clustering, cluster, cluster);
+                for (var clazz : clustering.getMembers(cluster)) {
+                    nbMethods[cluster] += graph.getMethodCount(clazz);
+                }
+            }
+            this.fOne = new ClusterContributions(clustering, cluster -> {
+                var size = clustering.getMembers(cluster).length;
+                return 0.5 * (interCoup(coupContributions.getInternalCoup(cluster), size) +
+                        interCoh(nbDirectConnections[cluster], nbMethods[cluster], size));
+            });
+        }
+    }
 }
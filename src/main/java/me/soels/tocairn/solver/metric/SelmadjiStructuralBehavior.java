@@ -1,7 +1,11 @@
 package me.soels.tocairn.solver.metric;
 
-import me.soels.tocairn.model.DependenceRelationship;
-import me.soels.tocairn.model.OtherClass;
+import me.soels.tocairn.solver.Clustering;
+import me.soels.tocairn.solver.CouplingIndex;
+import me.soels.tocairn.util.SigmaStatistics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Shared logic for the {@code FStructBeh} metric devised by Selmadji et al. (2020).
@@ -20,29 +24,117 @@ public abstract class SelmadjiStructuralBehavior implements Metric {
     /**
      * Returns the {@code coup} value between two classes.
      *
-     * @param i            the first class
-     * @param j            the second class
+     * @param index        the coupling index containing the calls between classes
+     * @param i            the index of the first class
+     * @param j            the index of the second class
      * @param nbTotalCalls the total amount of method calls within the application
      * @return the coup value
      */
-    protected Double coup(OtherClass i, OtherClass j, long nbTotalCalls) {
-        var toJ = getNbCalls(i, j);
-        var toI = getNbCalls(j, i);
-        return (toI + toJ) / (double) nbTotalCalls;
+    protected double coup(CouplingIndex index, int i, int j, long nbTotalCalls) {
+        return index.getCalls(i, j) / (double) nbTotalCalls;
     }
 
     /**
-     * Get the amount of calls made from class {@code a} to class {@code b}
+     * Returns the coup contributions of every microservice in the given clustering, shared between the structural
+     * behavior metrics.
      *
-     * @param a the caller class
-     * @param b the callee class
-     * @return the amount of calls made from a to b
+     * @param clustering the clustering to retrieve the contributions for
+     * @return the coup contributions for the clustering
      */
-    private Integer getNbCalls(OtherClass a, OtherClass b) {
-        return a.getDependenceRelationships().stream()
-                .filter(dep -> dep.getCallee().equals(b))
-                .findFirst()
-                .map(DependenceRelationship::getStaticFrequency)
-                .orElse(0);
+    protected CoupContributions getCoupContributions(Clustering clustering) {
+        return clustering.getContributions(SelmadjiStructuralBehavior.class, this::calculateCoupContributions);
+    }
+
+    private CoupContributions calculateCoupContributions(Clustering clustering) {
+        var graph = clustering.getGraph();
+        var index = clustering.getOptimizationData().getCouplingIndex();
+        var nbTotalCalls = clustering.getOptimizationData().getNbTotalCalls();
+        var contributions = new CoupContributions(clustering.getClusterCount());
+
+        // Only pairs calling each other have a non-zero coup value
+        for (var i = 0; i < graph.size(); i++) {
+            var cluster = clustering.getClusterOf(i);
+            for (var pos = index.neighbourStart(i); pos < index.neighbourEnd(i); pos++) {
+                var coup = index.getNeighbourCalls(pos) / (double) nbTotalCalls;
+                if (clustering.getClusterOf(index.getNeighbour(pos)) == cluster) {
+                    contributions.internalCoup[cluster].add(coup);
+                } else {
+                    contributions.externalCoup[cluster].add(coup);
+                }
+            }
+        }
+
+        // Add the pairs not calling each other
+        for (var cluster = 0; cluster < clustering.getClusterCount(); cluster++) {
+            long size = clustering.getMembers(cluster).length;
+            var internal = contributions.internalCoup[cluster];
+            var external = contributions.externalCoup[cluster];
+            contributions.internalCoup[cluster] = internal.combine(
+                    SigmaStatistics.zeros(size * (size - 1) - internal.getCount()));
+            contributions.externalCoup[cluster] = external.combine(
+                    SigmaStatistics.zeros(size * (graph.size() - size) - external.getCount()));
+        }
+        return contributions;
+    }
+
+    /**
+     * Returns the statistics of the coup values of all pairs of a class in microservice {@code a} with a class in
+     * microservice {@code b}.
+     * <p>
+     * As the coup value is symmetric, these are also the statistics for the pairs in the opposite direction.
+     *
+     * @param clustering    the clustering containing the microservices
+     * @param contributions the coup contributions of the clustering
+     * @param a             the first microservice
+     * @param b             the second microservice
+     * @return the coup statistics between both microservices
+     */
+    protected SigmaStatistics getSharedCoup(Clustering clustering, CoupContributions contributions, int a, int b) {
+        var key = (long) Math.min(a, b) * clustering.getClusterCount() + Math.max(a, b);
+        return contributions.sharedCoup.computeIfAbsent(key, k -> {
+            var index = clustering.getOptimizationData().getCouplingIndex();
+            var nbTotalCalls = clustering.getOptimizationData().getNbTotalCalls();
+            var result = new SigmaStatistics();
+            for (var i : clustering.getMembers(a)) {
+                for (var pos = index.neighbourStart(i); pos < index.neighbourEnd(i); pos++) {
+                    if (clustering.getClusterOf(index.getNeighbour(pos)) == b) {
+                        result.add(index.getNeighbourCalls(pos) / (double) nbTotalCalls);
+                    }
+                }
+            }
+            // Add the pairs not calling each other
+            long nbPairs = (long) clustering.getMembers(a).length * clustering.getMembers(b).length;
+            return result.combine(SigmaStatistics.zeros(nbPairs - result.getCount()));
+        });
+    }
+
+    /**
+     * The statistics of the coup values of the pairs of classes per microservice in a clustering such that mergers
+     * of microservices can be assessed.
+     */
+    protected static final class CoupContributions {
+        // Coup values of ordered pairs of classes within the microservice
+        private final SigmaStatistics[] internalCoup;
+        // Coup values of classes in the microservice with classes outside of the microservice
+        private final SigmaStatistics[] externalCoup;
+        // Coup values between pairs of microservices, calculated on demand
+        private final Map<Long, SigmaStatistics> sharedCoup = new ConcurrentHashMap<>();
+
+        private CoupContributions(int clusterCount) {
+            this.internalCoup = new SigmaStatistics[clusterCount];
+            this.externalCoup = new SigmaStatistics[clusterCount];
+            for (var cluster = 0; cluster < clusterCount; cluster++) {
+                internalCoup[cluster] = new SigmaStatistics();
+                externalCoup[cluster] = new SigmaStatistics();
+            }
+        }
+
+        public SigmaStatistics getInternalCoup(int cluster) {
+            return internalCoup[cluster];
+        }
+
+        public SigmaStatistics getExternalCoup(int cluster) {
+            return externalCoup[cluster];
+        }
     }
 }
@@ -0,0 +1,78 @@
+package me.soels.tocairn.solver.moeca;
+
+import me.soels.tocairn.model.MOECAConfiguration;
+import org.moeaframework.core.PRNG;
+import org.moeaframework.core.Solution;
+
+/**
+ * Repairs solutions of which the amount of clusters is outside of the configured range, instead of denying them.
+ * <p>
+ * With too many clusters, every cluster beyond the maximum amount is merged into a random remaining cluster. With too
+ * few clusters, random classes of clusters with more than one class are moved to new clusters until the minimum amount
+ * is reached. The repaired clusters are encoded back into the genes of the solution such that its offspring inherit
+ * them. The minimum amount can not be reached when there are not enough classes or cluster labels available, in which
+ * case the solution is repaired as far as possible.
+ */
+public class ClusterAmountRepair {
+    private final MOECAConfiguration configuration;
+    private final VariableDecoder decoder;
+
+    /**
+     * Constructs the repair operator for the given configuration.
+     *
+     * @param configuration the configuration containing the allowed amount of clusters and encoding configuration
+     * @param decoder       the decoder to decode and encode the genes of solutions with
+     */
+    public ClusterAmountRepair(MOECAConfiguration configuration, VariableDecoder decoder) {
+        this.configuration = configuration;
+        this.decoder = decoder;
+    }
+
+    /**
+     * Repairs the given solution such that its amount of clusters is within the configured range.
+     *
+     * @param solution the solution to repair
+     */
+    public void repair(Solution solution) {
+        var size = solution.getNumberOfVariables();
+        var clusterOfClass = new int[size];
+        var clusterCount = decoder.normalize(solution, configuration, clusterOfClass);
+        var maxClusterAmount = Math.min(configuration.getMaxClusterAmount().orElse(size), size);
+        var minClusterAmount = Math.min(configuration.getMinClusterAmount().orElse(1), maxClusterAmount);
+
+        if (clusterCount > maxClusterAmount) {
+            merge(clusterOfClass, clusterCount, maxClusterAmount);
+        } else if (clusterCount < minClusterAmount) {
+            split(clusterOfClass, clusterCount, minClusterAmount);
+        } else {
+            return;
+        }
+        decoder.encode(solution, configuration, clusterOfClass);
+    }
+
+    private static void merge(int[] clusterOfClass, int clusterCount, int maxClusterAmount) {
+        var targets = new int[clusterCount];
+        for (var cluster = 0; cluster < clusterCount; cluster++) {
+            targets[cluster] = cluster < maxClusterAmount ? cluster : PRNG.nextInt(maxClusterAmount);
+        }
+        for (var i = 0; i < clusterOfClass.length; i++) {
+            clusterOfClass[i] = targets[clusterOfClass[i]];
+        }
+    }
+
+    private static void split(int[] clusterOfClass, int clusterCount, int minClusterAmount) {
+        var clusterSizes = new int[minClusterAmount];
+        for (var cluster : clusterOfClass) {
+            clusterSizes[cluster]++;
+        }
+        // As there are fewer clusters than classes, a cluster with more than one class remains until the minimum
+        while (clusterCount < minClusterAmount) {
+            var clazz = PRNG.nextInt(clusterOfClass.length);
+            if (clusterSizes[clusterOfClass[clazz]] > 1) {
+                clusterSizes[clusterOfClass[clazz]]--;
+                clusterOfClass[clazz] = clusterCount;
+                clusterSizes[clusterCount++] = 1;
+            }
+        }
+    }
+}
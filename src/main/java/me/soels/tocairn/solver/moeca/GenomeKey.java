@@ -0,0 +1,49 @@
+package me.soels.tocairn.solver.moeca;
+
+import me.soels.tocairn.solver.Clustering;
+
+import java.util.Arrays;
+
+/**
+ * Key identifying a decoded solution by the normalized cluster of every class, used to cache the objectives of
+ * clusterings that were already evaluated.
+ * <p>
+ * Different genomes can decode to the same clustering, for example when cluster labels are permuted or when rounding
+ * the mutated variables results in the same labels. As the decoded clusters are normalized, these result in equal
+ * keys. The key caches its hash code.
+ */
+final class GenomeKey {
+    private final int[] clusterOfClass;
+    private final int hash;
+
+    /**
+     * Creates the key for the given decoded clustering. The key shares the internal array of the clustering, which is
+     * not modified.
+     *
+     * @param clustering the decoded clustering
+     */
+    GenomeKey(Clustering clustering) {
+        this.clusterOfClass = clustering.getClusterOfClass();
+        this.hash = Arrays.hashCode(clusterOfClass);
+    }
+
+    int size() {
+        return clusterOfClass.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        } else if (!(o instanceof GenomeKey)) {
+            return false;
+        }
+        var other = (GenomeKey) o;
+        return hash == other.hash && Arrays.equals(clusterOfClass, other.clusterOfClass);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,166 @@
+package me.soels.tocairn.solver.moeca;
+
+import me.soels.tocairn.model.MOECAConfiguration;
+import me.soels.tocairn.solver.SolverPool;
+import org.moeaframework.core.*;
+import org.moeaframework.core.spi.AlgorithmFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Island model evolving multiple populations of the configured algorithm in parallel.
+ * <p>
+ * When evaluating the members of a single population in parallel, every generation waits for its slowest evaluation
+ * before the next generation can be created. With the island model, every island evolves its own population on its own
+ * thread without waiting for the other islands. Only every {@link MOECAConfiguration#getMigrationInterval() migration
+ * interval} generations, the islands wait for each other and every island sends copies of randomly chosen
+ * non-dominated solutions to the next island in a ring. These replace the worst solutions of the receiving island.
+ * <p>
+ * The maximum amount of evaluations is divided over the islands and the maximum time applies to all islands together.
+ * The result consists of the non-dominated solutions of all islands. The algorithm should maintain a
+ * {@link NondominatedSortingPopulation}, such as NSGA-II and NSGA-III do.
+ */
+public class IslandModel {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IslandModel.class);
+    private static final int DEFAULT_MIGRATION_INTERVAL = 10;
+    private static final int DEFAULT_MIGRATION_SIZE = 2;
+
+    private final MOECAConfiguration configuration;
+    private final Properties properties;
+    private final int islands;
+    private final int migrationInterval;
+    private final int migrationSize;
+
+    /**
+     * Constructs the island model for the given configuration.
+     *
+     * @param configuration the configuration containing the amount of islands and their migration settings
+     * @param properties    the properties to construct the algorithm of every island with
+     */
+    public IslandModel(MOECAConfiguration configuration, Properties properties) {
+        this.configuration = configuration;
+        this.properties = properties;
+        this.islands = configuration.getIslands().orElse(1);
+        this.migrationInterval = configuration.getMigrationInterval().orElse(DEFAULT_MIGRATION_INTERVAL);
+        this.migrationSize = configuration.getMigrationSize().orElse(DEFAULT_MIGRATION_SIZE);
+    }
+
+    /**
+     * Evolves the islands until the maximum amount of evaluations or maximum time has been reached.
+     *
+     * @param problem          the problem to solve
+     * @param algorithmFactory the factory to construct the algorithm of every island with
+     * @return the non-dominated solutions of all islands
+     */
+    public NondominatedPopulation run(Problem problem, AlgorithmFactory algorithmFactory) {
+        var algorithms = new EvolutionaryAlgorithm[islands];
+        for (var i = 0; i < islands; i++) {
+            algorithms[i] = createAlgorithm(problem, algorithmFactory);
+        }
+        var evaluationsPerIsland = (configuration.getMaxEvaluations() + islands - 1) / islands;
+        var deadline = configuration.getMaxTime()
+                .filter(maxTime -> maxTime >= 0)
+                .map(maxTime -> System.currentTimeMillis() + maxTime)
+                .orElse(Long.MAX_VALUE);
+
+        try (var pool = SolverPool.of(configuration)) {
+            var generations = 0;
+            while (!isTerminated(algorithms, evaluationsPerIsland, deadline)) {
+                pool.forEach(islands, 1, i -> evolve(algorithms[i], evaluationsPerIsland, deadline));
+                generations += migrationInterval;
+                migrate(algorithms);
+                LOGGER.info("Evolved {} islands for {} generations, performing {}/{} evaluations.", islands,
+                        generations, getNumberOfEvaluations(algorithms), configuration.getMaxEvaluations());
+            }
+        } finally {
+            for (var algorithm : algorithms) {
+                algorithm.terminate();
+            }
+        }
+
+        var result = new NondominatedPopulation();
+        for (var algorithm : algorithms) {
+            result.addAll(algorithm.getResult());
+        }
+        return result;
+    }
+
+    private EvolutionaryAlgorithm createAlgorithm(Problem problem, AlgorithmFactory algorithmFactory) {
+        var algorithm = algorithmFactory.getAlgorithm(configuration.getAlgorithm(), properties, problem);
+        if (!(algorithm instanceof EvolutionaryAlgorithm) ||
+                !(((EvolutionaryAlgorithm) algorithm).getPopulation() instanceof NondominatedSortingPopulation)) {
+            throw new IllegalArgumentException("Algorithm " + configuration.getAlgorithm() + " does not maintain a " +
+                    "non-dominated sorting population, which is required for running on multiple islands");
+        }
+        return (EvolutionaryAlgorithm) algorithm;
+    }
+
+    /**
+     * Evolves the given island for at most the migration interval amount of generations.
+     */
+    private void evolve(EvolutionaryAlgorithm algorithm, int maxEvaluations, long deadline) {
+        for (var generation = 0; generation < migrationInterval; generation++) {
+            if (isTerminated(algorithm, maxEvaluations, deadline)) {
+                return;
+            }
+            algorithm.step();
+        }
+    }
+
+    /**
+     * Sends copies of non-dominated solutions of every island to the next island. The emigrants of all islands are
+     * chosen before any island receives its immigrants, such that solutions only move one island per migration.
+     */
+    private void migrate(EvolutionaryAlgorithm[] algorithms) {
+        if (algorithms.length < 2) {
+            return;
+        }
+        var emigrants = new ArrayList<List<Solution>>(algorithms.length);
+        for (var algorithm : algorithms) {
+            emigrants.add(selectEmigrants(algorithm.getResult()));
+        }
+        for (var i = 0; i < algorithms.length; i++) {
+            var population = (NondominatedSortingPopulation) algorithms[(i + 1) % algorithms.length].getPopulation();
+            var size = population.size();
+            population.addAll(emigrants.get(i));
+            // Truncating ranks the population again, removing the worst solutions by rank and crowding distance
+            population.truncate(size);
+        }
+    }
+
+    private List<Solution> selectEmigrants(NondominatedPopulation nondominated) {
+        var candidates = new ArrayList<Solution>(nondominated.size());
+        nondominated.forEach(candidates::add);
+        PRNG.shuffle(candidates);
+        var emigrants = new ArrayList<Solution>(Math.min(migrationSize, candidates.size()));
+        for (var i = 0; i < migrationSize && i < candidates.size(); i++) {
+            emigrants.add(candidates.get(i).deepCopy());
+        }
+        return emigrants;
+    }
+
+    private static boolean isTerminated(EvolutionaryAlgorithm[] algorithms, int maxEvaluations, long deadline) {
+        for (var algorithm : algorithms) {
+            if (!isTerminated(algorithm, maxEvaluations, deadline)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isTerminated(EvolutionaryAlgorithm algorithm, int maxEvaluations, long deadline) {
+        return algorithm.getNumberOfEvaluations() >= maxEvaluations || System.currentTimeMillis() >= deadline;
+    }
+
+    private static int getNumberOfEvaluations(EvolutionaryAlgorithm[] algorithms) {
+        var evaluations = 0;
+        for (var algorithm : algorithms) {
+            evaluations += algorithm.getNumberOfEvaluations();
+        }
+        return evaluations;
+    }
+}
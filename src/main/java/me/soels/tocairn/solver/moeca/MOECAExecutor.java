@@ -3,20 +3,56 @@ package me.soels.tocairn.solver.moeca;
 import lombok.Getter;
 import me.soels.tocairn.solver.SolverFactory;
 import org.moeaframework.Executor;
+import org.moeaframework.core.NondominatedPopulation;
+import org.moeaframework.core.spi.AlgorithmFactory;
+
+import javax.annotation.Nullable;
 
 /**
  * Custom {@link Executor} for our {@link MOECASolver}.
  * <p>
  * We need to retrieve the {@link MOECAProblem} instance outside of the {@link SolverFactory} to normalize the metrics
  * seen after running the solver.
+ * <p>
+ * When configured with an {@link IslandModel}, running this executor evolves the islands instead of a single
+ * population.
  */
-@Getter
 public class MOECAExecutor extends Executor {
+    @Getter
     private final MOECAProblem problem;
+    @Nullable
+    private AlgorithmFactory algorithmFactory;
+    @Nullable
+    private IslandModel islandModel;
 
     public MOECAExecutor(MOECAProblem problem) {
         super();
         this.problem = problem;
         withProblem(problem);
     }
+
+    @Override
+    public Executor usingAlgorithmFactory(AlgorithmFactory algorithmFactory) {
+        this.algorithmFactory = algorithmFactory;
+        return super.usingAlgorithmFactory(algorithmFactory);
+    }
+
+    /**
+     * Runs the given island model instead of a single population when running this executor.
+     *
+     * @param islandModel the island model to run
+     * @return this executor
+     */
+    public MOECAExecutor withIslandModel(IslandModel islandModel) {
+        this.islandModel = islandModel;
+        return this;
+    }
+
+    @Override
+    public NondominatedPopulation run() {
+        if (islandModel == null) {
+            return super.run();
+        }
+        return islandModel.run(problem, algorithmFactory != null ? algorithmFactory : AlgorithmFactory.getInstance());
+    }
 }
@@ -1,8 +1,12 @@
 package me.soels.tocairn.solver.moeca;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import me.soels.tocairn.model.EvaluationInput;
 import me.soels.tocairn.model.MOECAConfiguration;
+import me.soels.tocairn.solver.ClassGraph;
 import me.soels.tocairn.solver.OptimizationData;
+import me.soels.tocairn.solver.metric.MetricEvaluator;
 import me.soels.tocairn.solver.metric.MetricType;
 import org.apache.commons.lang3.tuple.Pair;
 import org.moeaframework.Executor;
@@ -13,11 +17,13 @@ import org.moeaframework.util.distributed.DistributedProblem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Models the multi objective evolutionary clustering algorithm's problem.
@@ -27,19 +33,32 @@ import java.util.stream.Collectors;
  * <p>
  * This problem can be parallelized as this problem only maintains state that does not change between evaluations. One
  * can do so using {@link DistributedProblem} or {@link Executor#distributeOnAllCores()}.
+ * <p>
+ * Genomes often decode to clusterings that were already evaluated, e.g. when the mutated variables round to the same
+ * integers. The objectives of evaluated clusterings are therefore cached by their normalized clusters. The cache is
+ * bounded by the summed amount of classes of the clusterings cached.
+ * <p>
+ * The amount of clusters is determined from the genes before decoding the clustering, such that solutions with a
+ * denied amount of clusters are rejected cheaply. When configured, these solutions are repaired through the
+ * {@link ClusterAmountRepair} instead.
  *
  * @see EncodingType
  */
 public class MOECAProblem extends AbstractProblem {
     private static final Logger LOGGER = LoggerFactory.getLogger(MOECAProblem.class);
     private final List<MetricType> metrics;
+    private final MetricEvaluator evaluator;
     private final Map<MetricType, Pair<Double, Double>[]> minMaxValues;
     private final EvaluationInput evaluationInput;
     private final MOECAConfiguration configuration;
     private final VariableDecoder variableDecoder;
-    private final OptimizationData optimizationData = new OptimizationData();
+    private final OptimizationData optimizationData;
+    private final Cache<GenomeKey, double[]> fitnessCache;
+    @Nullable
+    private final ClusterAmountRepair clusterAmountRepair;
     private final AtomicInteger evaluationCounter = new AtomicInteger(0);
     private final AtomicInteger deniedCounter = new AtomicInteger(0);
+    private final AtomicInteger repairedCounter = new AtomicInteger(0);
 
     /**
      * Constructs a new instance of the clustering problem
@@ -48,19 +67,35 @@ public class MOECAProblem extends AbstractProblem {
      * @param configuration   the configuration for the problem
      * @param variableDecoder the decoder service to decode the solution with
      */
-    @SuppressWarnings("unchecked") // Generic array creation, safe cast.
     public MOECAProblem(EvaluationInput analysisInput, MOECAConfiguration configuration, VariableDecoder variableDecoder) {
-        super(analysisInput.getOtherClasses().size(), configuration.getMetrics().stream()
-                .mapToInt(metricType -> metricType.getMetrics().size())
-                .sum());
+        this(analysisInput, configuration, variableDecoder, new MetricEvaluator(configuration.getMetrics()));
+    }
+
+    @SuppressWarnings("unchecked") // Generic array creation, safe cast.
+    private MOECAProblem(EvaluationInput analysisInput, MOECAConfiguration configuration,
+                         VariableDecoder variableDecoder, MetricEvaluator evaluator) {
+        super(analysisInput.getOtherClasses().size(), evaluator.getObjectiveCount());
         this.metrics = configuration.getMetrics();
+        this.evaluator = evaluator;
         this.evaluationInput = analysisInput;
         this.configuration = configuration;
         this.variableDecoder = variableDecoder;
-        this.minMaxValues = metrics.stream()
-                .collect(Collectors.toMap(metricType -> metricType, metricType ->
-                        metricType.getMetrics().stream()
-                                .map(metric -> Pair.of(Double.MAX_VALUE, Double.MIN_VALUE))
+        this.optimizationData = new OptimizationData(new ClassGraph(analysisInput),
+                configuration.getMaxCacheWeight().orElse(OptimizationData.DEFAULT_MAX_CACHE_WEIGHT));
+        this.fitnessCache = Caffeine.newBuilder()
+                .maximumWeight(configuration.getMaxFitnessCacheWeight()
+                        .orElse(MOECAConfiguration.DEFAULT_MAX_FITNESS_CACHE_WEIGHT))
+                .weigher((GenomeKey key, double[] objectives) -> key.size())
+                .recordStats()
+                .build();
+        this.clusterAmountRepair = configuration.isRepairClusterAmount()
+                ? new ClusterAmountRepair(configuration, variableDecoder)
+                : null;
+        this.minMaxValues = IntStream.range(0, metrics.size())
+                .boxed()
+                .collect(Collectors.toMap(metrics::get, typeIndex ->
+                        IntStream.range(0, evaluator.getMetricCount(typeIndex))
+                                .mapToObj(i -> Pair.of(Double.MAX_VALUE, Double.MIN_VALUE))
                                 .toArray(Pair[]::new))
                 );
     }
@@ -75,59 +110,76 @@ public class MOECAProblem extends AbstractProblem {
      */
     @Override
     public void evaluate(Solution solution) {
-        var decodedClustering = variableDecoder.decode(solution, evaluationInput, configuration, optimizationData);
+        // Check the amount of clusters on the genes first such that denied solutions are not decoded
+        var clusterCount = variableDecoder.countClusters(solution, configuration);
+        if (clusterAmountRepair != null && !isClusterAmountAllowed(clusterCount)) {
+            clusterAmountRepair.repair(solution);
+            clusterCount = variableDecoder.countClusters(solution, configuration);
+            repairedCounter.incrementAndGet();
+        }
 
         if (configuration.getMinClusterAmount().isPresent() &&
-                decodedClustering.getByCluster().size() < configuration.getMinClusterAmount().get()) {
+                clusterCount < configuration.getMinClusterAmount().get()) {
             solution.setConstraint(0, -1); // Too few clusters
             deniedCounter.incrementAndGet();
             return;
         } else if (configuration.getMaxClusterAmount().isPresent() &&
-                decodedClustering.getByCluster().size() > configuration.getMaxClusterAmount().get()) {
+                clusterCount > configuration.getMaxClusterAmount().get()) {
             solution.setConstraint(0, 1); // Too many clusters
             deniedCounter.incrementAndGet();
             return;
         }
 
+        var decodedClustering = variableDecoder.decode(solution, evaluationInput, configuration, optimizationData);
+
         // MOEAFramework works with Future<Solution> which does not allow us to call solution.getObjectives().
         // This data object allows us to log the metrics without having to call that function.
         var metricValues = new HashMap<String, Double>();
 
-        var objectiveCounter = 0;
-        for (var metricType : metrics) {
-            for (int i = 0; i < metricType.getMetrics().size(); i++) {
-                var metric = metricType.getMetrics().get(i);
-                double metricValue = metric.calculate(decodedClustering);
-                solution.setObjective(objectiveCounter++, metricValue);
+        // All metrics are evaluated together such that they share the aggregates calculated for this clustering.
+        // Clusterings evaluated before reuse their objectives, the cached array is not modified.
+        var objectives = fitnessCache.get(new GenomeKey(decodedClustering),
+                key -> evaluator.evaluate(decodedClustering));
+        for (var typeIndex = 0; typeIndex < metrics.size(); typeIndex++) {
+            var typeMinMaxValues = minMaxValues.get(metrics.get(typeIndex));
+            var offset = evaluator.getObjectiveOffset(typeIndex);
+            for (int i = 0; i < evaluator.getMetricCount(typeIndex); i++) {
+                double metricValue = objectives[offset + i];
+                solution.setObjective(offset + i, metricValue);
 
                 // Add to minmax
-                var existing = minMaxValues.get(metricType)[i];
+                var existing = typeMinMaxValues[i];
                 if (metricValue < existing.getKey()) {
-                    minMaxValues.get(metricType)[i] = Pair.of(metricValue, existing.getValue());
+                    typeMinMaxValues[i] = Pair.of(metricValue, existing.getValue());
                 }
                 if (metricValue > existing.getValue()) {
-                    minMaxValues.get(metricType)[i] = Pair.of(existing.getKey(), metricValue);
+                    typeMinMaxValues[i] = Pair.of(existing.getKey(), metricValue);
                 }
 
-                metricValues.put(metric.getClass().getSimpleName(), metricValue);
+                metricValues.put(evaluator.getMetric(typeIndex, i).getClass().getSimpleName(), metricValue);
             }
         }
 
-        if (optimizationData.hasTooMuchCached()) {
-            // Too large applications causes too much caching and therefore memory problems.
-            optimizationData.clearCache();
-        }
-
         var counter = evaluationCounter.incrementAndGet();
         if (counter % 1000 == 0 && LOGGER.isInfoEnabled()) {
             var denied = deniedCounter.getAndSet(0);
-            LOGGER.info("Performed {}/{} evaluations. Denied {}.", counter, configuration.getMaxEvaluations(), denied);
+            var repaired = repairedCounter.getAndSet(0);
+            LOGGER.info("Performed {}/{} evaluations. Denied {}. Repaired {}.", counter,
+                    configuration.getMaxEvaluations(), denied, repaired);
             LOGGER.info("Metric values for solution {} for metrics {} resp.",
                     metricValues.values().stream()
                             .map(String::valueOf)
                             .collect(Collectors.joining(", ", "[", "]")),
                     metricValues.keySet().stream()
                             .collect(Collectors.joining(", ", "[", "]")));
+            optimizationData.getCacheStats().forEach((metric, stats) ->
+                    LOGGER.info("Cache {}: hit rate {}, hits {}, misses {}, evictions {}.", metric,
+                            String.format("%.3f", stats.hitRate()), stats.hitCount(), stats.missCount(),
+                            stats.evictionCount()));
+            var fitnessStats = fitnessCache.stats();
+            LOGGER.info("Fitness cache: hit rate {}, hits {}, misses {}, evictions {}.",
+                    String.format("%.3f", fitnessStats.hitRate()), fitnessStats.hitCount(), fitnessStats.missCount(),
+                    fitnessStats.evictionCount());
         }
     }
 
@@ -160,6 +212,11 @@ public class MOECAProblem extends AbstractProblem {
         return solution;
     }
 
+    private boolean isClusterAmountAllowed(int clusterCount) {
+        return clusterCount >= configuration.getMinClusterAmount().orElse(clusterCount) &&
+                clusterCount <= configuration.getMaxClusterAmount().orElse(clusterCount);
+    }
+
     private int getUpperbound() {
         if (configuration.getEncodingType() == EncodingType.CLUSTER_LABEL) {
             return Integer.min(
@@ -2,6 +2,7 @@ package me.soels.tocairn.solver.moeca;
 
 import me.soels.tocairn.model.EvaluationInput;
 import me.soels.tocairn.model.MOECAConfiguration;
+import me.soels.tocairn.solver.ClassGraph;
 import me.soels.tocairn.solver.Clustering;
 import me.soels.tocairn.solver.ClusteringBuilder;
 import me.soels.tocairn.solver.OptimizationData;
@@ -10,13 +11,13 @@ import org.moeaframework.core.variable.EncodingUtils;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nullable;
-import java.util.Comparator;
-import java.util.LinkedHashMap;
-import java.util.Optional;
-import java.util.TreeMap;
+import java.util.Arrays;
 
 @Service
 public class VariableDecoder {
+    // Buffer per thread for the variables of the solution being decoded, which are not retained by the clustering
+    private static final ThreadLocal<int[]> VARIABLES = ThreadLocal.withInitial(() -> new int[0]);
+
     /**
      * Decodes the genes in the solution to the clusters identified.
      *
@@ -27,85 +28,100 @@ public class VariableDecoder {
      * @return the decoded clustering
      */
     public Clustering decode(Solution solution, EvaluationInput input, MOECAConfiguration configuration, @Nullable OptimizationData optimizationData) {
-        var variables = EncodingUtils.getInt(solution);
+        var variables = getVariables(solution);
+        // The gene index of a class equals its index in the class graph, so we can use the variables directly
+        var data = optimizationData != null ? optimizationData : new OptimizationData(new ClassGraph(input));
 
-        ClusteringBuilder builder;
         switch (configuration.getEncodingType()) {
             case GRAPH_ADJECENCY:
-                builder = decodeGraphAdjacency(input, variables);
-                break;
+                return ClusteringBuilder.fromLocusAdjacency(variables, data);
             case CLUSTER_LABEL:
-                builder = decodeClusterLabel(input, variables);
-                break;
+                return ClusteringBuilder.fromLabels(variables, data);
             default:
                 throw new IllegalStateException("Unknown encoding type " + configuration.getEncodingType());
         }
-        return builder.withOptimizationData(optimizationData)
-                .build();
     }
 
     /**
-     * Decode the given variables based on {@link EncodingType#CLUSTER_LABEL} encoding.
+     * Counts the clusters the genes in the solution decode to without constructing the clustering.
      *
-     * @param evaluationInput the additional analysis input information required to construct the clustering
-     * @param variables       the variables to decode
-     * @return the clustering that the given variables represent
+     * @param solution      the solution to count the clusters of
+     * @param configuration the configuration for the evaluation containing encoding configuration
+     * @return the amount of clusters
      */
-    private ClusteringBuilder decodeClusterLabel(EvaluationInput evaluationInput, int[] variables) {
-        var clusteringBuilder = new ClusteringBuilder();
-        var clusterNormalizationMapping = new LinkedHashMap<Integer, Integer>();
-        for (var i = 0; i < variables.length; i++) {
-            var clusterNumber = variables[i];
-            clusterNormalizationMapping.putIfAbsent(clusterNumber, clusterNormalizationMapping.size());
-            clusteringBuilder.addToCluster(evaluationInput.getOtherClasses().get(i), clusterNormalizationMapping.get(clusterNumber));
-        }
-        return clusteringBuilder;
+    public int countClusters(Solution solution, MOECAConfiguration configuration) {
+        return normalize(solution, configuration, null);
     }
 
+    /**
+     * Decodes the genes in the solution to the normalized cluster of every class without constructing the clustering.
+     *
+     * @param solution       the solution to decode
+     * @param configuration  the configuration for the evaluation containing encoding configuration
+     * @param clusterOfClass the array to write the normalized cluster of every class to, or {@code null} to only count
+     *                       the clusters
+     * @return the amount of clusters
+     */
+    public int normalize(Solution solution, MOECAConfiguration configuration, @Nullable int[] clusterOfClass) {
+        var variables = getVariables(solution);
+        switch (configuration.getEncodingType()) {
+            case GRAPH_ADJECENCY:
+                return ClusteringBuilder.normalizeLocusAdjacency(variables, clusterOfClass);
+            case CLUSTER_LABEL:
+                return ClusteringBuilder.normalizeLabels(variables, clusterOfClass);
+            default:
+                throw new IllegalStateException("Unknown encoding type " + configuration.getEncodingType());
+        }
+    }
 
     /**
-     * Decode the given variables based on {@link EncodingType#GRAPH_ADJECENCY} encoding.
+     * Encodes the given clusters into the genes of the solution.
+     * <p>
+     * With {@link EncodingType#CLUSTER_LABEL} encoding, the clusters are used as labels. With
+     * {@link EncodingType#GRAPH_ADJECENCY} encoding, every class is linked to the previous class in its cluster and the
+     * first class of every cluster is linked to itself.
      *
-     * @param evaluationInput the additional analysis input information required to construct the clustering
-     * @param variables       the variables to decode
-     * @return the clustering that the given variables represent
+     * @param solution       the solution to set the genes of
+     * @param configuration  the configuration for the evaluation containing encoding configuration
+     * @param clusterOfClass the normalized cluster of every class
      */
-    private ClusteringBuilder decodeGraphAdjacency(EvaluationInput evaluationInput, int[] variables) {
-        var clusteringBuilder = new ClusteringBuilder();
-        var nodeClusterPair = new TreeMap<Integer, Integer>();
-        var clustersToMerge = new TreeMap<Integer, Integer>(Comparator.reverseOrder());
-        var clusterCount = 0;
+    public void encode(Solution solution, MOECAConfiguration configuration, int[] clusterOfClass) {
+        switch (configuration.getEncodingType()) {
+            case GRAPH_ADJECENCY:
+                var previousOfCluster = new int[clusterOfClass.length];
+                Arrays.fill(previousOfCluster, -1);
+                for (var i = 0; i < clusterOfClass.length; i++) {
+                    var previous = previousOfCluster[clusterOfClass[i]];
+                    EncodingUtils.setInt(solution.getVariable(i), previous == -1 ? i : previous);
+                    previousOfCluster[clusterOfClass[i]] = i;
+                }
+                break;
+            case CLUSTER_LABEL:
+                for (var i = 0; i < clusterOfClass.length; i++) {
+                    EncodingUtils.setInt(solution.getVariable(i), clusterOfClass[i]);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown encoding type " + configuration.getEncodingType());
+        }
+    }
 
+    /**
+     * Reads the variables of the given solution into the buffer of this thread. The buffer is only valid until the
+     * next decoding on the same thread.
+     *
+     * @param solution the solution to read the variables of
+     * @return the buffer containing the variables
+     */
+    private static int[] getVariables(Solution solution) {
+        var variables = VARIABLES.get();
+        if (variables.length != solution.getNumberOfVariables()) {
+            variables = new int[solution.getNumberOfVariables()];
+            VARIABLES.set(variables);
+        }
         for (var i = 0; i < variables.length; i++) {
-            var linkedNode = variables[i];
-            var existingCurrent = Optional.ofNullable(nodeClusterPair.get(i));
-            var existingLinked = Optional.ofNullable(nodeClusterPair.get(linkedNode));
-
-            if (existingCurrent.isPresent() && existingLinked.isEmpty()) {
-                // We have not yet seen the linked node, but for the current node a cluster was already created.
-                // Add linked node to existing cluster
-                nodeClusterPair.put(linkedNode, existingCurrent.get());
-                clusteringBuilder.addToCluster(evaluationInput.getOtherClasses().get(linkedNode), existingCurrent.get());
-            } else if (existingCurrent.isEmpty() && existingLinked.isPresent()) {
-                // We have not yet seen the current node, but for the linked node a cluster was already created.
-                // Add current node to existing cluster
-                nodeClusterPair.put(i, existingLinked.get());
-                clusteringBuilder.addToCluster(evaluationInput.getOtherClasses().get(i), existingLinked.get());
-            } else if (existingCurrent.isEmpty()) {
-                // We have not seen either node, create a new cluster for both
-                nodeClusterPair.put(i, clusterCount);
-                clusteringBuilder.addToCluster(evaluationInput.getOtherClasses().get(i), clusterCount);
-                nodeClusterPair.put(linkedNode, clusterCount);
-                clusteringBuilder.addToCluster(evaluationInput.getOtherClasses().get(linkedNode), clusterCount);
-                clusterCount++;
-            } else if (!existingCurrent.get().equals(existingLinked.get())) {
-                // We already have two different clusters for both the current and linked node. These should be merged.
-                clustersToMerge.put(Math.max(existingCurrent.get(), existingLinked.get()),
-                        Math.min(existingCurrent.get(), existingLinked.get()));
-            } // The else condition results in the two nodes being present and already being part of the same cluster.
+            variables[i] = EncodingUtils.getInt(solution.getVariable(i));
         }
-
-        clustersToMerge.forEach(clusteringBuilder::mergeCluster);
-        return clusteringBuilder;
+        return variables;
     }
 }
@@ -40,4 +40,25 @@ public class SigmaCalculator {
             return result;
         }
     }
+
+    /**
+     * Returns the sigma of the two given values.
+     * <p>
+     * This calculates sigma the same way as {@link #getSigma(List)} does without collecting the values.
+     *
+     * @param a the first value
+     * @param b the second value
+     * @return the sigma of both values
+     * @see #getSigma(List)
+     */
+    public static double getSigma(double a, double b) {
+        var mean = (a + b) / 2;
+        var result = sqrt(Math.pow(a - mean, 2) + Math.pow(b - mean, 2));
+        if (Double.valueOf(result).isNaN()) {
+            // Fallback.
+            return 0.0;
+        } else {
+            return result;
+        }
+    }
 }
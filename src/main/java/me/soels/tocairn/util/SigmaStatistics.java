@@ -0,0 +1,121 @@
+package me.soels.tocairn.util;
+
+import static java.lang.Math.sqrt;
+
+/**
+ * Running statistics of a set of values from which the sum and sigma of those values can be derived.
+ * <p>
+ * The statistics are kept as the count, mean and sum of squared differences from the mean (Welford's algorithm) such
+ * that the statistics of two sets of values can be combined and subtracted without visiting the values again. The
+ * sigma is calculated the same way as {@link SigmaCalculator#getSigma(java.util.List)} does.
+ * <p>
+ * Values are only added through {@link #add(double)} while constructing the statistics. Combining or subtracting
+ * statistics returns a new instance such that constructed statistics can be shared.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Parallel_algorithm">Parallel algorithm</a>
+ */
+public final class SigmaStatistics {
+    private long count;
+    private double mean;
+    private double m2;
+
+    public SigmaStatistics() {
+        // Empty set of values
+    }
+
+    private SigmaStatistics(long count, double mean, double m2) {
+        this.count = count;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    /**
+     * Returns the statistics of the given amount of zero values.
+     *
+     * @param count the amount of zero values
+     * @return the statistics of the zero values
+     */
+    public static SigmaStatistics zeros(long count) {
+        return new SigmaStatistics(count, 0.0, 0.0);
+    }
+
+    /**
+     * Adds the given value to these statistics.
+     *
+     * @param value the value to add
+     */
+    public void add(double value) {
+        count++;
+        var delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    /**
+     * Returns the statistics of the values of both these and the given statistics.
+     *
+     * @param other the statistics to combine with
+     * @return the combined statistics
+     */
+    public SigmaStatistics combine(SigmaStatistics other) {
+        if (other.count == 0) {
+            return this;
+        } else if (count == 0) {
+            return other;
+        }
+        var total = count + other.count;
+        var delta = other.mean - mean;
+        return new SigmaStatistics(total,
+                mean + delta * other.count / total,
+                m2 + other.m2 + delta * delta * count * other.count / total);
+    }
+
+    /**
+     * Returns the statistics of the values in these statistics without those in the given statistics.
+     * <p>
+     * The values of the given statistics should be part of these statistics.
+     *
+     * @param other the statistics of the values to remove
+     * @return the remaining statistics
+     */
+    public SigmaStatistics subtract(SigmaStatistics other) {
+        if (other.count == 0) {
+            return this;
+        } else if (other.count >= count) {
+            return new SigmaStatistics();
+        }
+        var remaining = count - other.count;
+        var remainingMean = (count * mean - other.count * other.mean) / remaining;
+        var delta = other.mean - remainingMean;
+        var remainingM2 = m2 - other.m2 - delta * delta * remaining * other.count / count;
+        // Guard against rounding errors resulting in a negative variance
+        return new SigmaStatistics(remaining, remainingMean, Math.max(0.0, remainingM2));
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return mean * count;
+    }
+
+    /**
+     * Returns the sigma of the values in these statistics.
+     *
+     * @return the sigma of the values
+     */
+    public double getSigma() {
+        if (count <= 1) {
+            // Value of 0 or 1 would cause division by 0.
+            return 0.0;
+        }
+        var result = sqrt(m2 / (count - 1));
+        if (Double.valueOf(result).isNaN()) {
+            // Fallback.
+            return 0.0;
+        } else {
+            return result;
+        }
+    }
+}